@@ -1,18 +1,118 @@
 package apps;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import apps.batch.BatchPipeline;
+import apps.math.set.CharSet;
+import apps.math.set.CharSetScanner;
+import apps.server.LoadGenerator;
+import apps.server.TimetableServer;
+import apps.trains.Timetable;
+
 /**
  * Класс, содержащий точку входа приложения
  */
 public class EntryPoint
 {
+	private static final String USAGE = String.join("\n",
+			"Использование:",
+			"\tserver <port> [timetable] [virtual|pool] [maxInFlight] - сервер запросов к расписанию",
+			"\tload [trains] [maxClients] [requestsPerClient] - сравнение виртуальных потоков с пулом потоков",
+			"\tbatch <job> <output> [queueCapacity] - пакетная обработка файла заданий",
+			"\tscan <file> <chars> - подсчёт символов множества chars в файле UTF-8");
+	
 	/**
 	 * Точка входа приложения
 	 *
 	 * @param args Консольные аргументы
+	 * @throws Exception Ошибка выполнения выбранного режима
 	 */
-	public static void main(String[] args)
+	public static void main(String[] args) throws Exception
 	{
+		if (args.length == 0)
+		{
+			System.out.println(USAGE);
+			
+			return;
+		}
+		
+		switch (args[0])
+		{
+			case "server":
+				runServer(args);
+				
+				break;
+			case "load":
+				LoadGenerator.compare(argument(args, 1, 10_000), argument(args, 2, 64), argument(args, 3, 2_000), 4_096);
+				
+				break;
+			case "batch":
+				runBatch(args);
+				
+				break;
+			case "scan":
+				runScan(args);
+				
+				break;
+			default:
+				System.out.println(USAGE);
+		}
+	}
 	
+	private static void runServer(String[] args) throws Exception
+	{
+		int port = argument(args, 1, 8080);
+		Timetable timetable = args.length > 2 ? Timetable.load(Path.of(args[2])) : new Timetable();
+		TimetableServer.ExecutorType type = args.length > 3 && args[3].equals("pool") ?
+				TimetableServer.ExecutorType.THREAD_POOL : TimetableServer.isVirtualThreadsSupported() ?
+				TimetableServer.ExecutorType.VIRTUAL_THREADS : TimetableServer.ExecutorType.THREAD_POOL;
+		TimetableServer server = new TimetableServer(timetable, port, type, argument(args, 4, 4_096));
 		
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		
+		server.start();
+		
+		System.out.println("Сервер запущен на 127.0.0.1:" + server.getPort() + " (" + type + ", поездов: " + timetable.size() + ")");
+	}
+	
+	private static void runBatch(String[] args) throws Exception
+	{
+		if (args.length < 3)
+		{
+			System.out.println(USAGE);
+			
+			return;
+		}
+		
+		BatchPipeline pipeline = new BatchPipeline(argument(args, 3, 1_024), 1 << 16);
+		
+		for (BatchPipeline.StageStatistics statistics : pipeline.run(Path.of(args[1]), Path.of(args[2])))
+		{
+			System.out.println(statistics);
+		}
+	}
+	
+	private static void runScan(String[] args) throws Exception
+	{
+		if (args.length < 3)
+		{
+			System.out.println(USAGE);
+			
+			return;
+		}
+		
+		Path file = Path.of(args[1]);
+		CharSetScanner scanner = new CharSetScanner(new CharSet(args[2].toCharArray()));
+		long start = System.nanoTime();
+		long count = scanner.countMatches(file);
+		long nanos = System.nanoTime() - start;
+		
+		System.out.printf("matches: %d, %.3f GB/s%n", count, Files.size(file) / (double) nanos);
+	}
+	
+	private static int argument(String[] args, int index, int defaultValue)
+	{
+		return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
 	}
 }
@@ -0,0 +1,479 @@
+package apps.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import apps.math.set.CharSet;
+import apps.math.set.CharSetBatch;
+import apps.math.vector.Vector;
+import apps.trains.Timetable;
+import apps.trains.Train;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий конвейер пакетной обработки заданий<br>
+ * Стадии разбора, вычисления и записи работают в отдельных потоках и связаны очередями ограниченного размера,
+ * поэтому расход памяти не зависит от размера файла заданий.<br>
+ * Строки файла заданий (поля разделяются ';', строки с '#' игнорируются):<br>
+ * timetable;path - загрузка расписания для последующих запросов (при ошибке остаётся предыдущее)<br>
+ * trains;destination[;hour|common] - запрос поездов до destination (после hour или с общими местами)<br>
+ * sets;chars1;chars2;... - CharSet.construct для пар (chars1, chars2), (chars3, chars4), ...<br>
+ * vectors;x1,y1,...;x2,y2,...;... - проверка коллинеарности и ортогональности для пар векторов
+ */
+public class BatchPipeline
+{
+	/**
+	 * Статистика стадии конвейера
+	 */
+	public static class StageStatistics
+	{
+		private final String name;
+		private long items;
+		private long nanos;
+		
+		private StageStatistics(String name)
+		{
+			this.name = name;
+		}
+		
+		/**
+		 * Getter для items
+		 *
+		 * @return Количество обработанных элементов
+		 */
+		public long getItems()
+		{
+			return items;
+		}
+		
+		/**
+		 * Пропускная способность стадии без учёта ожидания очередей
+		 *
+		 * @return Количество элементов в секунду
+		 */
+		public double getThroughput()
+		{
+			return nanos == 0 ? 0.0 : items * 1e9 / nanos;
+		}
+		
+		/**
+		 * Представление статистики в виде строки
+		 *
+		 * @return Статистика в формате name: items, busy ms, items/s
+		 */
+		@Override
+		public String toString()
+		{
+			return String.format("%s: %d items, %.1f ms busy, %.0f items/s", name, items, nanos / 1e6, getThroughput());
+		}
+	}
+	
+	private static final Callable<String> END_OF_TASKS = () -> null;
+	private static final String END_OF_RESULTS = new String();
+	
+	private final int queueCapacity;
+	private final int bufferSize;
+	
+	/**
+	 * Конструктор конвейера
+	 *
+	 * @param queueCapacity Размер очередей между стадиями
+	 * @param bufferSize    Размер буфера записи в байтах
+	 */
+	public BatchPipeline(int queueCapacity, int bufferSize)
+	{
+		this.queueCapacity = queueCapacity;
+		this.bufferSize = bufferSize;
+	}
+	
+	/**
+	 * Выполнение файла заданий
+	 *
+	 * @param job    Файл заданий в кодировке UTF-8
+	 * @param output Файл результатов
+	 * @return Статистика стадий разбора, вычисления и записи
+	 * @throws Exception Ошибка чтения, записи или прерывание
+	 */
+	public List<StageStatistics> run(Path job, Path output) throws Exception
+	{
+		BlockingQueue<Callable<String>> tasks = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<String> results = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		StageStatistics parse = new StageStatistics("parse");
+		StageStatistics compute = new StageStatistics("compute");
+		StageStatistics write = new StageStatistics("write");
+		
+		Thread parser = new Thread(() ->
+		{
+			try (BufferedReader reader = Files.newBufferedReader(job, StandardCharsets.UTF_8))
+			{
+				Timetable timetable = new Timetable();
+				String line;
+				int number = 0;
+				
+				while ((line = reader.readLine()) != null)
+				{
+					long start = System.nanoTime();
+					
+					number++;
+					
+					if (line.isBlank() || line.startsWith("#"))
+					{
+						continue;
+					}
+					
+					String[] fields = line.split(";");
+					Callable<String> task;
+					
+					if (fields[0].equals("timetable") && fields.length == 2)
+					{
+						// Ошибка загрузки одного расписания не прерывает задание: в результаты пишется строка ошибки,
+						// последующие запросы выполняются над предыдущим расписанием
+						try
+						{
+							timetable = Timetable.load(job.resolveSibling(fields[1]));
+							task = null;
+						}
+						catch (IOException | WrongTimetableFormatException exception)
+						{
+							String error = line + " -> ошибка: " + String.valueOf(exception.getMessage()).replace('\n', ' ');
+							
+							task = () -> error;
+						}
+					}
+					else
+					{
+						task = parseTask(number, line, fields, timetable);
+					}
+					
+					parse.nanos += System.nanoTime() - start;
+					
+					if (task != null)
+					{
+						parse.items++;
+						tasks.put(task);
+					}
+				}
+			}
+			catch (Exception exception)
+			{
+				failure.compareAndSet(null, exception);
+			}
+			finally
+			{
+				putUninterruptibly(tasks, END_OF_TASKS);
+			}
+		}, "batch-parse");
+		
+		Thread computer = new Thread(() ->
+		{
+			try
+			{
+				Callable<String> task;
+				
+				while ((task = tasks.take()) != END_OF_TASKS)
+				{
+					long start = System.nanoTime();
+					String result = task.call();
+					
+					compute.nanos += System.nanoTime() - start;
+					compute.items++;
+					
+					results.put(result);
+				}
+			}
+			catch (Exception exception)
+			{
+				failure.compareAndSet(null, exception);
+				
+				drain(tasks, END_OF_TASKS);
+			}
+			finally
+			{
+				putUninterruptibly(results, END_OF_RESULTS);
+			}
+		}, "batch-compute");
+		
+		Thread writer = new Thread(() ->
+		{
+			CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+			
+			try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				String result;
+				
+				while ((result = results.take()) != END_OF_RESULTS)
+				{
+					long start = System.nanoTime();
+					CharBuffer chars = CharBuffer.wrap(result);
+					
+					while (true)
+					{
+						CoderResult coderResult = encoder.encode(chars, buffer, false);
+						
+						if (coderResult.isOverflow())
+						{
+							flush(channel, buffer);
+						}
+						else
+						{
+							break;
+						}
+					}
+					
+					if (!buffer.hasRemaining())
+					{
+						flush(channel, buffer);
+					}
+					
+					buffer.put((byte) '\n');
+					
+					write.nanos += System.nanoTime() - start;
+					write.items++;
+				}
+				
+				long start = System.nanoTime();
+				
+				flush(channel, buffer);
+				
+				write.nanos += System.nanoTime() - start;
+			}
+			catch (Exception exception)
+			{
+				failure.compareAndSet(null, exception);
+				
+				drain(results, END_OF_RESULTS);
+			}
+		}, "batch-write");
+		
+		parser.start();
+		computer.start();
+		writer.start();
+		
+		parser.join();
+		computer.join();
+		writer.join();
+		
+		if (failure.get() != null)
+		{
+			throw failure.get();
+		}
+		
+		List<StageStatistics> statistics = new ArrayList<>(3);
+		
+		statistics.add(parse);
+		statistics.add(compute);
+		statistics.add(write);
+		
+		return statistics;
+	}
+	
+	private static Callable<String> parseTask(int number, String line, String[] fields, Timetable timetable)
+	{
+		switch (fields[0])
+		{
+			case "trains":
+				if (fields.length == 2 || fields.length == 3)
+				{
+					return () -> queryTrains(line, fields, timetable);
+				}
+				
+				break;
+			case "sets":
+				if (fields.length % 2 == 1)
+				{
+					return () -> constructSets(line, fields);
+				}
+				
+				break;
+			case "vectors":
+				if (fields.length % 2 == 1)
+				{
+					return () -> classifyVectors(line, fields);
+				}
+				
+				break;
+		}
+		
+		return () -> line + " -> ошибка: неверный формат строки " + number;
+	}
+	
+	private static String queryTrains(String line, String[] fields, Timetable timetable)
+	{
+		List<Train> trains;
+		
+		try
+		{
+			if (fields.length == 2)
+			{
+				trains = timetable.getTrainListByDestination(fields[1]);
+			}
+			else if (fields[2].equals("common"))
+			{
+				trains = timetable.getTrainListByDestinationAndCommonSeatType(fields[1]);
+			}
+			else
+			{
+				trains = timetable.getTrainListByDestinationAndAfterHour(fields[1], Integer.parseInt(fields[2].strip()));
+			}
+		}
+		catch (Exception exception)
+		{
+			return line + " -> ошибка: " + exception.getMessage().replace('\n', ' ');
+		}
+		
+		StringBuilder builder = new StringBuilder(line).append(" -> ").append(trains.size()).append(':');
+		
+		for (Train train : trains)
+		{
+			builder.append(' ').append(train.getNumber());
+		}
+		
+		return builder.toString();
+	}
+	
+	private static String constructSets(String line, String[] fields) throws Exception
+	{
+		char[][] elements = new char[fields.length - 1][];
+		
+		for (int i = 1; i < fields.length; i++)
+		{
+			elements[i - 1] = fields[i].toCharArray();
+		}
+		
+		CharSetBatch batch = new CharSetBatch(CharSet.createArray(elements));
+		int[] first = new int[elements.length / 2];
+		int[] second = new int[elements.length / 2];
+		
+		for (int k = 0; k < first.length; k++)
+		{
+			first[k] = 2 * k;
+			second[k] = 2 * k + 1;
+		}
+		
+		StringBuilder builder = new StringBuilder(line).append(" ->");
+		
+		for (CharSet set : batch.construct(first, second))
+		{
+			builder.append(' ').append(set);
+		}
+		
+		return builder.toString();
+	}
+	
+	private static String classifyVectors(String line, String[] fields) throws Exception
+	{
+		double[][] values = new double[fields.length - 1][];
+		
+		try
+		{
+			for (int i = 1; i < fields.length; i++)
+			{
+				String[] coordinates = fields[i].split(",");
+				
+				values[i - 1] = new double[coordinates.length];
+				
+				for (int j = 0; j < coordinates.length; j++)
+				{
+					values[i - 1][j] = Double.parseDouble(coordinates[j].strip());
+				}
+			}
+		}
+		catch (NumberFormatException exception)
+		{
+			return line + " -> ошибка: " + exception.getMessage();
+		}
+		
+		Vector[] vectors = Vector.createArray(values);
+		StringBuilder builder = new StringBuilder(line).append(" ->");
+		
+		for (int i = 0; i + 1 < vectors.length; i += 2)
+		{
+			builder.append(' ');
+			
+			try
+			{
+				boolean collinear = vectors[i].isCollinear(vectors[i + 1]);
+				boolean orthogonal = vectors[i].isOrthogonal(vectors[i + 1]);
+				
+				builder.append(collinear ? orthogonal ? "collinear+orthogonal" : "collinear" : orthogonal ? "orthogonal" : "none");
+			}
+			catch (Exception exception)
+			{
+				builder.append("error");
+			}
+		}
+		
+		return builder.toString();
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		
+		buffer.clear();
+	}
+	
+	private static <T> void putUninterruptibly(BlockingQueue<T> queue, T element)
+	{
+		boolean interrupted = false;
+		
+		while (true)
+		{
+			try
+			{
+				queue.put(element);
+				
+				break;
+			}
+			catch (InterruptedException exception)
+			{
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static <T> void drain(BlockingQueue<T> queue, T end)
+	{
+		try
+		{
+			T element;
+			
+			do
+			{
+				element = queue.take();
+			}
+			while (element != end);
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Пакет с пакетной обработкой заданий
+ */
+package apps.batch;
\ No newline at end of file
@@ -0,0 +1,700 @@
+package apps.math.cluster;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import apps.math.vector.Vector;
+import apps.math.vector.exceptions.DifferentDimensionException;
+
+/**
+ * Класс описывающий кластеризацию векторов методом k-средних<br>
+ * Начальные центры выбираются методом k-means++. Полный режим использует границы Хамерли:
+ * для каждой точки хранятся верхняя граница расстояния до своего центра и нижняя граница расстояния
+ * до второго ближайшего, поэтому для большинства точек расстояния до центров не вычисляются.
+ * Режим мини-пакетов (batchSize &gt; 0) на каждой итерации сдвигает центры по случайной выборке точек.<br>
+ * Координаты копируются в один непрерывный массив, итерации не создают объектов;
+ * назначение точек центрам выполняется параллельно, если parallel = true
+ */
+public class KMeans
+{
+	private static final int BLOCK = 1024;
+	
+	private final int k;
+	private int maxIterations = 100;
+	private double tolerance = 1e-9;
+	private long seed = 42;
+	private int batchSize;
+	private boolean parallel = true;
+	
+	/**
+	 * Конструктор кластеризации
+	 *
+	 * @param k Количество кластеров
+	 * @throws IllegalArgumentException k &lt;= 0
+	 */
+	public KMeans(int k) throws IllegalArgumentException
+	{
+		if (k <= 0)
+		{
+			throw new IllegalArgumentException("Количество кластеров должно быть положительным");
+		}
+		
+		this.k = k;
+	}
+	
+	/**
+	 * Setter для maxIterations
+	 *
+	 * @param maxIterations Максимальное количество итераций
+	 */
+	public void setMaxIterations(int maxIterations)
+	{
+		this.maxIterations = maxIterations;
+	}
+	
+	/**
+	 * Setter для tolerance
+	 *
+	 * @param tolerance Сдвиг центров, при котором (и меньше) кластеризация считается сошедшейся
+	 */
+	public void setTolerance(double tolerance)
+	{
+		this.tolerance = tolerance;
+	}
+	
+	/**
+	 * Setter для seed
+	 *
+	 * @param seed Начальное значение генератора случайных чисел
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+	
+	/**
+	 * Setter для batchSize
+	 *
+	 * @param batchSize Размер мини-пакета, 0 - полный режим с границами Хамерли
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * Setter для parallel
+	 *
+	 * @param parallel true для параллельного назначения точек центрам
+	 */
+	public void setParallel(boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Кластеризация векторов
+	 *
+	 * @param vectors Векторы одинаковой размерности
+	 * @return Результат кластеризации
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 * @throws IllegalArgumentException Векторов меньше, чем кластеров
+	 */
+	public Result cluster(Vector[] vectors) throws DifferentDimensionException, IllegalArgumentException
+	{
+		if (vectors.length < k)
+		{
+			throw new IllegalArgumentException("Векторов меньше, чем кластеров");
+		}
+		
+		int dimension = vectors[0].getDimension();
+		double[] points = new double[vectors.length * dimension];
+		
+		for (int i = 0; i < vectors.length; i++)
+		{
+			if (vectors[i].getDimension() != dimension)
+			{
+				throw DifferentDimensionException.STACKLESS;
+			}
+			
+			System.arraycopy(vectors[i].getCoordinates(), 0, points, i * dimension, dimension);
+		}
+		
+		Engine engine = new Engine(points, vectors.length, dimension);
+		
+		engine.seed(new Random(seed));
+		
+		return batchSize > 0 ? engine.miniBatch(new Random(seed + 1)) : engine.hamerly();
+	}
+	
+	/**
+	 * Класс описывающий результат кластеризации
+	 */
+	public static class Result
+	{
+		private final int[] assignments;
+		private final Vector[] centroids;
+		private final double inertia;
+		private final long[] iterationNanos;
+		private final double skippedFraction;
+		private final boolean converged;
+		
+		private Result(int[] assignments, Vector[] centroids, double inertia, long[] iterationNanos, double skippedFraction, boolean converged)
+		{
+			this.assignments = assignments;
+			this.centroids = centroids;
+			this.inertia = inertia;
+			this.iterationNanos = iterationNanos;
+			this.skippedFraction = skippedFraction;
+			this.converged = converged;
+		}
+		
+		/**
+		 * Getter для assignments
+		 *
+		 * @return Номер кластера каждого вектора в порядке входного массива
+		 */
+		public int[] getAssignments()
+		{
+			return assignments;
+		}
+		
+		/**
+		 * Getter для centroids
+		 *
+		 * @return Центры кластеров
+		 */
+		public Vector[] getCentroids()
+		{
+			return centroids;
+		}
+		
+		/**
+		 * Getter для inertia
+		 *
+		 * @return Сумма квадратов расстояний от векторов до центров их кластеров
+		 */
+		public double getInertia()
+		{
+			return inertia;
+		}
+		
+		/**
+		 * Количество выполненных итераций
+		 *
+		 * @return Количество итераций
+		 */
+		public int getIterations()
+		{
+			return iterationNanos.length;
+		}
+		
+		/**
+		 * Getter для iterationNanos
+		 *
+		 * @return Время каждой итерации в наносекундах
+		 */
+		public long[] getIterationNanos()
+		{
+			return iterationNanos;
+		}
+		
+		/**
+		 * Getter для skippedFraction
+		 *
+		 * @return Доля пропущенных вычислений расстояний относительно n * k на итерацию
+		 */
+		public double getSkippedFraction()
+		{
+			return skippedFraction;
+		}
+		
+		/**
+		 * Getter для converged
+		 *
+		 * @return true если центры перестали сдвигаться до достижения maxIterations, false иначе
+		 */
+		public boolean isConverged()
+		{
+			return converged;
+		}
+		
+		/**
+		 * Представление результата в виде строки
+		 *
+		 * @return Краткая сводка кластеризации
+		 */
+		@Override
+		public String toString()
+		{
+			long total = 0;
+			
+			for (long nanos : iterationNanos)
+			{
+				total += nanos;
+			}
+			
+			return String.format("итераций: %d, сошлась: %b, инерция: %.6g, мкс/итерацию: %.1f, пропущено расстояний: %.1f%%",
+				getIterations(), converged, inertia, iterationNanos.length == 0 ? 0.0 : total / 1e3 / iterationNanos.length, 100 * skippedFraction);
+		}
+	}
+	
+	/**
+	 * Состояние одной кластеризации
+	 */
+	private class Engine
+	{
+		private final double[] points;
+		private final int count;
+		private final int dimension;
+		private final double[] centroids;
+		private final double[] sums;
+		private final int[] sizes;
+		private final int[] assignments;
+		private final double[] upper;
+		private final double[] lower;
+		private final double[] halfGap;
+		private final double[] shifts;
+		private final long[] computed;
+		private final int[] changed;
+		
+		private Engine(double[] points, int count, int dimension)
+		{
+			this.points = points;
+			this.count = count;
+			this.dimension = dimension;
+			centroids = new double[k * dimension];
+			sums = new double[k * dimension];
+			sizes = new int[k];
+			assignments = new int[count];
+			upper = new double[count];
+			lower = new double[count];
+			halfGap = new double[k];
+			shifts = new double[k];
+			
+			int blocks = (count + BLOCK - 1) / BLOCK;
+			
+			computed = new long[blocks];
+			changed = new int[blocks];
+		}
+		
+		/**
+		 * Выбор начальных центров k-means++: каждый следующий центр выбирается с вероятностью,
+		 * пропорциональной квадрату расстояния до ближайшего выбранного
+		 */
+		private void seed(Random random)
+		{
+			double[] nearest = upper;
+			int first = random.nextInt(count);
+			
+			System.arraycopy(points, first * dimension, centroids, 0, dimension);
+			
+			for (int i = 0; i < count; i++)
+			{
+				nearest[i] = squaredDistance(i, 0);
+			}
+			
+			for (int c = 1; c < k; c++)
+			{
+				double total = 0.0;
+				
+				for (int i = 0; i < count; i++)
+				{
+					total += nearest[i];
+				}
+				
+				int chosen = count - 1;
+				double target = random.nextDouble() * total;
+				
+				for (int i = 0; i < count; i++)
+				{
+					target -= nearest[i];
+					
+					if (target < 0.0)
+					{
+						chosen = i;
+						
+						break;
+					}
+				}
+				
+				System.arraycopy(points, chosen * dimension, centroids, c * dimension, dimension);
+				
+				for (int i = 0; i < count; i++)
+				{
+					nearest[i] = Math.min(nearest[i], squaredDistance(i, c));
+				}
+			}
+		}
+		
+		private Result hamerly()
+		{
+			long[] nanos = new long[maxIterations];
+			long distances = 0;
+			int iterations = 0;
+			boolean converged = false;
+			
+			forEachBlock(this::assignAll);
+			distances += (long) count * k;
+			
+			while (iterations < maxIterations)
+			{
+				long start = System.nanoTime();
+				double maxShift = updateCentroids();
+				
+				updateBounds();
+				updateHalfGaps();
+				
+				Arrays.fill(computed, 0);
+				Arrays.fill(changed, 0);
+				forEachBlock(this::assignBounded);
+				
+				nanos[iterations++] = System.nanoTime() - start;
+				
+				int moved = 0;
+				
+				for (int block = 0; block < computed.length; block++)
+				{
+					distances += computed[block];
+					moved += changed[block];
+				}
+				
+				if (moved == 0 || maxShift <= tolerance)
+				{
+					converged = true;
+					
+					break;
+				}
+			}
+			
+			double skipped = 1.0 - (double) distances / ((long) count * k * (iterations + 1));
+			
+			return result(Arrays.copyOf(nanos, iterations), skipped, converged);
+		}
+		
+		private Result miniBatch(Random random)
+		{
+			long[] nanos = new long[maxIterations];
+			int[] batch = new int[Math.min(batchSize, count)];
+			int iterations = 0;
+			boolean converged = false;
+			
+			while (iterations < maxIterations)
+			{
+				long start = System.nanoTime();
+				
+				for (int b = 0; b < batch.length; b++)
+				{
+					batch[b] = random.nextInt(count);
+					assignments[batch[b]] = nearest(batch[b]);
+				}
+				
+				double maxShift = 0.0;
+				
+				for (int index : batch)
+				{
+					int c = assignments[index];
+					double rate = 1.0 / ++sizes[c];
+					double shift = 0.0;
+					
+					for (int d = 0; d < dimension; d++)
+					{
+						double delta = rate * (points[index * dimension + d] - centroids[c * dimension + d]);
+						
+						centroids[c * dimension + d] += delta;
+						shift += delta * delta;
+					}
+					
+					maxShift = Math.max(maxShift, shift);
+				}
+				
+				nanos[iterations++] = System.nanoTime() - start;
+				
+				if (Math.sqrt(maxShift) <= tolerance)
+				{
+					converged = true;
+					
+					break;
+				}
+			}
+			
+			forEachBlock((from, to, block) ->
+			{
+				for (int i = from; i < to; i++)
+				{
+					assignments[i] = nearest(i);
+				}
+			});
+			
+			return result(Arrays.copyOf(nanos, iterations), 0.0, converged);
+		}
+		
+		private Result result(long[] nanos, double skipped, boolean converged)
+		{
+			Vector[] vectors = new Vector[k];
+			double inertia = 0.0;
+			
+			for (int c = 0; c < k; c++)
+			{
+				vectors[c] = new Vector(Arrays.copyOfRange(centroids, c * dimension, (c + 1) * dimension));
+			}
+			
+			for (int i = 0; i < count; i++)
+			{
+				inertia += squaredDistance(i, assignments[i]);
+			}
+			
+			return new Result(assignments, vectors, inertia, nanos, skipped, converged);
+		}
+		
+		/**
+		 * Назначение ближайшего центра с вычислением обеих границ
+		 */
+		private void assignAll(int from, int to, int block)
+		{
+			for (int i = from; i < to; i++)
+			{
+				scan(i);
+			}
+		}
+		
+		/**
+		 * Назначение с пропуском точек, для которых границы гарантируют неизменность ближайшего центра
+		 */
+		private void assignBounded(int from, int to, int block)
+		{
+			long distances = 0;
+			int moved = 0;
+			
+			for (int i = from; i < to; i++)
+			{
+				int current = assignments[i];
+				double bound = Math.max(halfGap[current], lower[i]);
+				
+				if (upper[i] <= bound)
+				{
+					continue;
+				}
+				
+				upper[i] = Math.sqrt(squaredDistance(i, current));
+				distances++;
+				
+				if (upper[i] <= bound)
+				{
+					continue;
+				}
+				
+				scan(i);
+				distances += k;
+				
+				if (assignments[i] != current)
+				{
+					moved++;
+				}
+			}
+			
+			computed[block] = distances;
+			changed[block] = moved;
+		}
+		
+		private void scan(int index)
+		{
+			double best = Double.POSITIVE_INFINITY;
+			double second = Double.POSITIVE_INFINITY;
+			int nearest = 0;
+			
+			for (int c = 0; c < k; c++)
+			{
+				double distance = squaredDistance(index, c);
+				
+				if (distance < best)
+				{
+					second = best;
+					best = distance;
+					nearest = c;
+				}
+				else if (distance < second)
+				{
+					second = distance;
+				}
+			}
+			
+			assignments[index] = nearest;
+			upper[index] = Math.sqrt(best);
+			lower[index] = Math.sqrt(second);
+		}
+		
+		private int nearest(int index)
+		{
+			double best = Double.POSITIVE_INFINITY;
+			int result = 0;
+			
+			for (int c = 0; c < k; c++)
+			{
+				double distance = squaredDistance(index, c);
+				
+				if (distance < best)
+				{
+					best = distance;
+					result = c;
+				}
+			}
+			
+			return result;
+		}
+		
+		/**
+		 * Пересчёт центров по назначениям в заранее выделенных массивах
+		 *
+		 * @return Максимальный сдвиг центра
+		 */
+		private double updateCentroids()
+		{
+			Arrays.fill(sums, 0.0);
+			Arrays.fill(sizes, 0);
+			
+			for (int i = 0; i < count; i++)
+			{
+				int c = assignments[i];
+				
+				sizes[c]++;
+				
+				for (int d = 0; d < dimension; d++)
+				{
+					sums[c * dimension + d] += points[i * dimension + d];
+				}
+			}
+			
+			double maxShift = 0.0;
+			
+			for (int c = 0; c < k; c++)
+			{
+				double shift = 0.0;
+				
+				if (sizes[c] != 0)
+				{
+					for (int d = 0; d < dimension; d++)
+					{
+						double value = sums[c * dimension + d] / sizes[c];
+						double delta = value - centroids[c * dimension + d];
+						
+						centroids[c * dimension + d] = value;
+						shift += delta * delta;
+					}
+				}
+				
+				shifts[c] = Math.sqrt(shift);
+				maxShift = Math.max(maxShift, shifts[c]);
+			}
+			
+			return maxShift;
+		}
+		
+		/**
+		 * Сдвиг границ на величину сдвига центров: верхняя растёт на сдвиг своего центра,
+		 * нижняя уменьшается на наибольший сдвиг другого центра
+		 */
+		private void updateBounds()
+		{
+			int largest = 0;
+			int secondLargest = -1;
+			
+			for (int c = 1; c < k; c++)
+			{
+				if (shifts[c] > shifts[largest])
+				{
+					secondLargest = largest;
+					largest = c;
+				}
+				else if (secondLargest < 0 || shifts[c] > shifts[secondLargest])
+				{
+					secondLargest = c;
+				}
+			}
+			
+			double otherShift = secondLargest < 0 ? 0.0 : shifts[secondLargest];
+			
+			for (int i = 0; i < count; i++)
+			{
+				int c = assignments[i];
+				
+				upper[i] += shifts[c];
+				lower[i] -= c == largest ? otherShift : shifts[largest];
+			}
+		}
+		
+		/**
+		 * Половина расстояния от каждого центра до ближайшего другого центра
+		 */
+		private void updateHalfGaps()
+		{
+			for (int c = 0; c < k; c++)
+			{
+				double best = Double.POSITIVE_INFINITY;
+				
+				for (int other = 0; other < k; other++)
+				{
+					if (other != c)
+					{
+						best = Math.min(best, centroidDistance(c, other));
+					}
+				}
+				
+				halfGap[c] = Math.sqrt(best) / 2;
+			}
+		}
+		
+		private double squaredDistance(int index, int centroid)
+		{
+			int p = index * dimension;
+			int q = centroid * dimension;
+			double result = 0.0;
+			
+			for (int d = 0; d < dimension; d++)
+			{
+				double delta = points[p + d] - centroids[q + d];
+				
+				result += delta * delta;
+			}
+			
+			return result;
+		}
+		
+		private double centroidDistance(int first, int second)
+		{
+			int p = first * dimension;
+			int q = second * dimension;
+			double result = 0.0;
+			
+			for (int d = 0; d < dimension; d++)
+			{
+				double delta = centroids[p + d] - centroids[q + d];
+				
+				result += delta * delta;
+			}
+			
+			return result;
+		}
+		
+		private void forEachBlock(BlockTask task)
+		{
+			IntStream blocks = IntStream.range(0, computed.length);
+			
+			if (parallel && computed.length > 1)
+			{
+				blocks = blocks.parallel();
+			}
+			
+			blocks.forEach(block -> task.run(block * BLOCK, Math.min(count, (block + 1) * BLOCK), block));
+		}
+	}
+	
+	/**
+	 * Обработка блока точек [from, to) с номером block
+	 */
+	private interface BlockTask
+	{
+		void run(int from, int to, int block);
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Пакет с классом KMeans
+ */
+package apps.math.cluster;
\ No newline at end of file
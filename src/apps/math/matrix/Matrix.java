@@ -0,0 +1,611 @@
+package apps.math.matrix;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import apps.math.vector.Vector;
+import apps.math.vector.exceptions.DifferentDimensionException;
+
+/**
+ * Класс описывающий матрицу линейного преобразования векторов<br>
+ * Элементы хранятся построчно в одном массиве double[]. Умножение матриц и преобразование наборов векторов
+ * выполняются блоками, чтобы блок матрицы и блок векторов оставались в кеше процессора, скалярные произведения
+ * считаются четырьмя накопителями. Наборы векторов с объёмом работы от PARALLEL_WORK умножений
+ * обрабатываются параллельно частями по BATCH_BLOCK векторов
+ */
+public class Matrix implements Cloneable
+{
+	/**
+	 * Количество умножений, начиная с которого набор векторов преобразуется параллельно
+	 */
+	public static final long PARALLEL_WORK = 1L << 20;
+	
+	private static final int BATCH_BLOCK = 64;
+	private static final int ROW_BLOCK = 128;
+	private static final int GEMM_BLOCK = 64;
+	
+	private final int rows;
+	private final int columns;
+	private final double[] values;
+	
+	/**
+	 * Единичная матрица
+	 *
+	 * @param dimension Размерность
+	 * @return Единичная матрица dimension x dimension
+	 */
+	public static Matrix identity(int dimension)
+	{
+		return diagonal(filled(dimension, 1.0));
+	}
+	
+	/**
+	 * Диагональная матрица масштабирования
+	 *
+	 * @param factors Множители координат
+	 * @return Матрица с factors на диагонали
+	 */
+	public static Matrix diagonal(double... factors)
+	{
+		Matrix result = new Matrix(factors.length, factors.length);
+		
+		for (int i = 0; i < factors.length; i++)
+		{
+			result.values[i * factors.length + i] = factors[i];
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Матрица поворота в плоскости двух координат (вращение Гивенса)
+	 *
+	 * @param dimension Размерность
+	 * @param first     Индекс первой координаты плоскости
+	 * @param second    Индекс второй координаты плоскости
+	 * @param angle     Угол поворота в радианах от first к second
+	 * @return Матрица поворота dimension x dimension
+	 * @throws IndexOutOfBoundsException Индекс координаты >= dimension
+	 */
+	public static Matrix rotation(int dimension, int first, int second, double angle) throws IndexOutOfBoundsException
+	{
+		Objects.checkIndex(first, dimension);
+		Objects.checkIndex(second, dimension);
+		
+		Matrix result = identity(dimension);
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+		
+		result.values[first * dimension + first] = cos;
+		result.values[first * dimension + second] = -sin;
+		result.values[second * dimension + first] = sin;
+		result.values[second * dimension + second] = cos;
+		
+		return result;
+	}
+	
+	/**
+	 * Матрица ортогональной проекции на прямую
+	 *
+	 * @param direction Направляющий вектор прямой
+	 * @return Матрица d * d^T / |d|^2
+	 */
+	public static Matrix projection(Vector direction)
+	{
+		double[] coordinates = direction.getCoordinates();
+		int dimension = coordinates.length;
+		double square = dot(coordinates, 0, coordinates, 0, dimension);
+		Matrix result = new Matrix(dimension, dimension);
+		
+		if (square == 0.0)
+		{
+			return result;
+		}
+		
+		for (int i = 0; i < dimension; i++)
+		{
+			for (int j = 0; j < dimension; j++)
+			{
+				result.values[i * dimension + j] = coordinates[i] * coordinates[j] / square;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Создание матрицы из строк-векторов
+	 *
+	 * @param rows Строки матрицы
+	 * @return Матрица со строками rows
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public static Matrix ofRows(Vector... rows) throws DifferentDimensionException
+	{
+		int columns = rows.length == 0 ? 0 : rows[0].getDimension();
+		Matrix result = new Matrix(rows.length, columns);
+		
+		for (int i = 0; i < rows.length; i++)
+		{
+			if (rows[i].getDimension() != columns)
+			{
+				throw DifferentDimensionException.STACKLESS;
+			}
+			
+			System.arraycopy(rows[i].getCoordinates(), 0, result.values, i * columns, columns);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Конструктор нулевой матрицы
+	 *
+	 * @param rows    Количество строк
+	 * @param columns Количество столбцов
+	 */
+	public Matrix(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		values = new double[Math.multiplyExact(rows, columns)];
+	}
+	
+	/**
+	 * Конструктор для задания элементов матрицы
+	 *
+	 * @param values Строки матрицы
+	 * @throws Exception Строки разной длины
+	 */
+	public Matrix(double[][] values) throws Exception
+	{
+		this(values.length, values.length == 0 ? 0 : values[0].length);
+		
+		for (int i = 0; i < rows; i++)
+		{
+			if (values[i].length != columns)
+			{
+				throw new Exception("Размеры массивов должны быть одинаковы");
+			}
+			
+			System.arraycopy(values[i], 0, this.values, i * columns, columns);
+		}
+	}
+	
+	/**
+	 * Копирующий конструктор
+	 *
+	 * @param other Матрица для копирования
+	 */
+	public Matrix(Matrix other)
+	{
+		rows = other.rows;
+		columns = other.columns;
+		values = Arrays.copyOf(other.values, other.values.length);
+	}
+	
+	/**
+	 * Количество строк
+	 *
+	 * @return Количество строк, размерность результата преобразования
+	 */
+	public int getRows()
+	{
+		return rows;
+	}
+	
+	/**
+	 * Количество столбцов
+	 *
+	 * @return Количество столбцов, размерность преобразуемых векторов
+	 */
+	public int getColumns()
+	{
+		return columns;
+	}
+	
+	/**
+	 * Получение элемента матрицы
+	 *
+	 * @param row    Индекс строки
+	 * @param column Индекс столбца
+	 * @return Элемент матрицы
+	 * @throws IndexOutOfBoundsException Индекс вне размеров матрицы
+	 */
+	public double get(int row, int column) throws IndexOutOfBoundsException
+	{
+		return values[Objects.checkIndex(row, rows) * columns + Objects.checkIndex(column, columns)];
+	}
+	
+	/**
+	 * Изменение элемента матрицы
+	 *
+	 * @param row    Индекс строки
+	 * @param column Индекс столбца
+	 * @param value  Новое значение элемента
+	 * @throws IndexOutOfBoundsException Индекс вне размеров матрицы
+	 */
+	public void set(int row, int column, double value) throws IndexOutOfBoundsException
+	{
+		values[Objects.checkIndex(row, rows) * columns + Objects.checkIndex(column, columns)] = value;
+	}
+	
+	/**
+	 * Строка матрицы
+	 *
+	 * @param row Индекс строки
+	 * @return Новый вектор с элементами строки
+	 * @throws IndexOutOfBoundsException Индекс >= количества строк
+	 */
+	public Vector getRow(int row) throws IndexOutOfBoundsException
+	{
+		int from = Objects.checkIndex(row, rows) * columns;
+		
+		return new Vector(Arrays.copyOfRange(values, from, from + columns));
+	}
+	
+	/**
+	 * Транспонирование матрицы
+	 *
+	 * @return Новая транспонированная матрица
+	 */
+	public Matrix transpose()
+	{
+		Matrix result = new Matrix(columns, rows);
+		
+		for (int i = 0; i < rows; i += GEMM_BLOCK)
+		{
+			for (int j = 0; j < columns; j += GEMM_BLOCK)
+			{
+				for (int row = i; row < Math.min(rows, i + GEMM_BLOCK); row++)
+				{
+					for (int column = j; column < Math.min(columns, j + GEMM_BLOCK); column++)
+					{
+						result.values[column * rows + row] = values[row * columns + column];
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Умножение матрицы на вектор
+	 *
+	 * @param vector Вектор размерности getColumns()
+	 * @return Новый вектор размерности getRows()
+	 * @throws DifferentDimensionException Размерность вектора не равна количеству столбцов
+	 */
+	public Vector multiply(Vector vector) throws DifferentDimensionException
+	{
+		double[] input = vector.getCoordinates();
+		
+		if (input.length != columns)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		double[] output = new double[rows];
+		
+		transform(input, 0, output, 0, 1, false);
+		
+		return new Vector(output);
+	}
+	
+	/**
+	 * Умножение матриц
+	 *
+	 * @param other Правая матрица, количество строк которой равно количеству столбцов текущей
+	 * @return Новая матрица this * other
+	 * @throws DifferentDimensionException Количество столбцов не равно количеству строк other
+	 */
+	public Matrix multiply(Matrix other) throws DifferentDimensionException
+	{
+		if (columns != other.rows)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		Matrix result = new Matrix(rows, other.columns);
+		int width = other.columns;
+		
+		for (int k = 0; k < columns; k += GEMM_BLOCK)
+		{
+			int kEnd = Math.min(columns, k + GEMM_BLOCK);
+			
+			for (int j = 0; j < width; j += GEMM_BLOCK)
+			{
+				int jEnd = Math.min(width, j + GEMM_BLOCK);
+				
+				for (int i = 0; i < rows; i++)
+				{
+					int resultRow = i * width;
+					
+					for (int p = k; p < kEnd; p++)
+					{
+						// Нулевой множитель не пропускается: 0 * Inf и 0 * NaN должны дать NaN в результате
+						double factor = values[i * columns + p];
+						int otherRow = p * width;
+						
+						for (int column = j; column < jEnd; column++)
+						{
+							result.values[resultRow + column] += factor * other.values[otherRow + column];
+						}
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Преобразование набора векторов
+	 *
+	 * @param vectors Векторы размерности getColumns()
+	 * @return Новые векторы размерности getRows() в том же порядке
+	 * @throws DifferentDimensionException Размерность вектора не равна количеству столбцов
+	 */
+	public Vector[] apply(Vector[] vectors) throws DifferentDimensionException
+	{
+		return apply(vectors, false);
+	}
+	
+	/**
+	 * Преобразование набора векторов с нормированием результатов за один проход<br>
+	 * Каждый результат нормируется, пока он находится в кеше; нулевые результаты остаются нулевыми
+	 *
+	 * @param vectors Векторы размерности getColumns()
+	 * @return Новые единичные векторы размерности getRows() в том же порядке
+	 * @throws DifferentDimensionException Размерность вектора не равна количеству столбцов
+	 */
+	public Vector[] applyAndNormalize(Vector[] vectors) throws DifferentDimensionException
+	{
+		return apply(vectors, true);
+	}
+	
+	/**
+	 * Преобразование непрерывного набора векторов без создания объектов Vector
+	 *
+	 * @param input  Координаты count векторов подряд, по getColumns() на вектор
+	 * @param output Массив для count результатов подряд, по getRows() на результат
+	 * @param count  Количество векторов
+	 * @throws DifferentDimensionException Длина input или output меньше нужной
+	 */
+	public void apply(double[] input, double[] output, int count) throws DifferentDimensionException
+	{
+		if (input.length < (long) count * columns || output.length < (long) count * rows)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		run(count, (from, to) -> transform(input, from * columns, output, from * rows, to - from, false));
+	}
+	
+	/**
+	 * Клонирование матрицы
+	 *
+	 * @return Новая матрица идентичная данной
+	 */
+	@Override
+	public Matrix clone()
+	{
+		return new Matrix(this);
+	}
+	
+	/**
+	 * Представление матрицы в виде строки
+	 *
+	 * @return Матрица в формате [(a11, ..., a1n), ..., (am1, ..., amn)]
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append('[');
+		
+		for (int i = 0; i < rows; i++)
+		{
+			builder.append(getRow(i));
+			
+			if (i + 1 != rows)
+			{
+				builder.append(", ");
+			}
+		}
+		
+		builder.append(']');
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Сравнение матриц
+	 *
+	 * @param other Матрица для сравнения
+	 * @return true в случае равенства размеров и всех элементов, false иначе
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
+		{
+			return false;
+		}
+		
+		Matrix ref = (Matrix) other;
+		
+		if (rows != ref.rows || columns != ref.columns)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < values.length; i++)
+		{
+			if (values[i] != ref.values[i])
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Хеш-код матрицы
+	 *
+	 * @return Хеш-код, согласованный с equals
+	 */
+	@Override
+	public int hashCode()
+	{
+		int result = 31 * rows + columns;
+		
+		for (double value : values)
+		{
+			long bits = Double.doubleToLongBits(value + 0.0);
+			
+			result = 31 * result + (int) (bits ^ bits >>> 32);
+		}
+		
+		return result;
+	}
+	
+	private Vector[] apply(Vector[] vectors, boolean normalize) throws DifferentDimensionException
+	{
+		for (Vector vector : vectors)
+		{
+			if (vector.getDimension() != columns)
+			{
+				throw DifferentDimensionException.STACKLESS;
+			}
+		}
+		
+		Vector[] result = new Vector[vectors.length];
+		
+		run(vectors.length, (from, to) ->
+		{
+			double[] input = new double[(to - from) * columns];
+			double[] output = new double[(to - from) * rows];
+			
+			for (int i = from; i < to; i++)
+			{
+				System.arraycopy(vectors[i].getCoordinates(), 0, input, (i - from) * columns, columns);
+			}
+			
+			transform(input, 0, output, 0, to - from, normalize);
+			
+			for (int i = from; i < to; i++)
+			{
+				result[i] = new Vector(Arrays.copyOfRange(output, (i - from) * rows, (i - from + 1) * rows));
+			}
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Разбиение набора на части по BATCH_BLOCK векторов, параллельно при большом объёме работы
+	 */
+	private void run(int count, Block block)
+	{
+		int blocks = (count + BATCH_BLOCK - 1) / BATCH_BLOCK;
+		IntStream range = IntStream.range(0, blocks);
+		
+		if (blocks > 1 && (long) count * rows * columns >= PARALLEL_WORK)
+		{
+			range = range.parallel();
+		}
+		
+		range.forEach(index -> block.process(index * BATCH_BLOCK, Math.min(count, (index + 1) * BATCH_BLOCK)));
+	}
+	
+	/**
+	 * Преобразование count векторов подряд: для каждого блока из ROW_BLOCK строк матрицы
+	 * проходятся все векторы части, поэтому блок строк читается из кеша
+	 */
+	private void transform(double[] input, int inputOffset, double[] output, int outputOffset, int count, boolean normalize)
+	{
+		for (int r = 0; r < rows; r += ROW_BLOCK)
+		{
+			int rEnd = Math.min(rows, r + ROW_BLOCK);
+			
+			for (int v = 0; v < count; v++)
+			{
+				int x = inputOffset + v * columns;
+				int y = outputOffset + v * rows;
+				
+				for (int row = r; row < rEnd; row++)
+				{
+					output[y + row] = dot(values, row * columns, input, x, columns);
+				}
+			}
+		}
+		
+		if (normalize)
+		{
+			for (int v = 0; v < count; v++)
+			{
+				int y = outputOffset + v * rows;
+				double module = Math.sqrt(dot(output, y, output, y, rows));
+				
+				if (module != 0.0)
+				{
+					for (int row = 0; row < rows; row++)
+					{
+						output[y + row] /= module;
+					}
+				}
+			}
+		}
+	}
+	
+	private static double dot(double[] first, int firstOffset, double[] second, int secondOffset, int length)
+	{
+		double a = 0.0;
+		double b = 0.0;
+		double c = 0.0;
+		double d = 0.0;
+		int i = 0;
+		
+		for (; i + 3 < length; i += 4)
+		{
+			a += first[firstOffset + i] * second[secondOffset + i];
+			b += first[firstOffset + i + 1] * second[secondOffset + i + 1];
+			c += first[firstOffset + i + 2] * second[secondOffset + i + 2];
+			d += first[firstOffset + i + 3] * second[secondOffset + i + 3];
+		}
+		
+		for (; i < length; i++)
+		{
+			a += first[firstOffset + i] * second[secondOffset + i];
+		}
+		
+		return (a + b) + (c + d);
+	}
+	
+	private static double[] filled(int length, double value)
+	{
+		double[] result = new double[length];
+		
+		Arrays.fill(result, value);
+		
+		return result;
+	}
+	
+	/**
+	 * Обработка части набора векторов [from, to)
+	 */
+	private interface Block
+	{
+		void process(int from, int to);
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Пакет с классом Matrix
+ */
+package apps.math.matrix;
\ No newline at end of file
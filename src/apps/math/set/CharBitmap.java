@@ -0,0 +1,376 @@
+package apps.math.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс описывающий неизменяемое множество символов в виде битовой карты<br>
+ * Бит с номером c установлен, если символ c принадлежит множеству.
+ * Хранятся только слова до последнего ненулевого, поэтому множество из ASCII символов занимает 2 слова
+ */
+public class CharBitmap
+{
+	/**
+	 * Количество 64-битных слов, покрывающих все символы
+	 */
+	public static final int WORDS = (Character.MAX_VALUE + 1) >>> 6;
+	
+	private static final CharBitmap EMPTY = new CharBitmap(new long[0], 0);
+	
+	private final long[] words;
+	private final int cardinality;
+	
+	/**
+	 * Пустое множество
+	 *
+	 * @return Пустая битовая карта
+	 */
+	public static CharBitmap empty()
+	{
+		return EMPTY;
+	}
+	
+	/**
+	 * Мощность пересечения множеств без построения пересечения
+	 *
+	 * @param first  Первое множество
+	 * @param second Второе множество
+	 * @return Количество символов, принадлежащих обоим множествам
+	 */
+	public static int intersectionSize(CharBitmap first, CharBitmap second)
+	{
+		int length = Math.min(first.words.length, second.words.length);
+		int result = 0;
+		
+		for (int i = 0; i < length; i++)
+		{
+			result += Long.bitCount(first.words[i] & second.words[i]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Мощность симметрической разности множеств без её построения
+	 *
+	 * @param first  Первое множество
+	 * @param second Второе множество
+	 * @return Количество символов, принадлежащих только одному из множеств
+	 */
+	public static int symmetricDifferenceSize(CharBitmap first, CharBitmap second)
+	{
+		return first.cardinality + second.cardinality - 2 * intersectionSize(first, second);
+	}
+	
+	/**
+	 * Коэффициент Жаккара |A ∩ B| / |A ∪ B|
+	 *
+	 * @param first  Первое множество
+	 * @param second Второе множество
+	 * @return Коэффициент Жаккара, 1.0 для двух пустых множеств
+	 */
+	public static double jaccard(CharBitmap first, CharBitmap second)
+	{
+		int intersection = intersectionSize(first, second);
+		int union = first.cardinality + second.cardinality - intersection;
+		
+		return union == 0 ? 1.0 : (double) intersection / union;
+	}
+	
+	/**
+	 * Конструктор битовой карты множества символов
+	 *
+	 * @param set Множество символов
+	 */
+	public CharBitmap(CharSet set)
+	{
+		List<Character> chars = set.getChars();
+		int max = -1;
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			max = Math.max(max, chars.get(i));
+		}
+		
+		words = new long[max < 0 ? 0 : (max >>> 6) + 1];
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			char character = chars.get(i);
+			
+			words[character >>> 6] |= 1L << character;
+		}
+		
+		cardinality = countBits(words, words.length);
+	}
+	
+	/**
+	 * Конструктор для перечисления элементов
+	 *
+	 * @param chars Элементы множества
+	 */
+	public CharBitmap(char... chars)
+	{
+		long[] bits = new long[WORDS];
+		
+		for (char character : chars)
+		{
+			bits[character >>> 6] |= 1L << character;
+		}
+		
+		int length = trimmedLength(bits, bits.length);
+		
+		words = Arrays.copyOf(bits, length);
+		cardinality = countBits(words, length);
+	}
+	
+	/**
+	 * Конструктор из слов битовой карты<br>
+	 * Массив не копируется и не должен изменяться после вызова
+	 *
+	 * @param words  Слова битовой карты
+	 * @param length Количество используемых слов
+	 */
+	CharBitmap(long[] words, int length)
+	{
+		length = trimmedLength(words, length);
+		
+		this.words = length == words.length ? words : Arrays.copyOf(words, length);
+		this.cardinality = countBits(words, length);
+	}
+	
+	/**
+	 * Мощность множества
+	 *
+	 * @return Мощность множества
+	 */
+	public int cardinality()
+	{
+		return cardinality;
+	}
+	
+	/**
+	 * Проверка на наличие элемента в множестве
+	 *
+	 * @param element Проверяемый элемент
+	 * @return true в случае присутствия элемента в множестве, false иначе
+	 */
+	public boolean contains(char element)
+	{
+		int index = element >>> 6;
+		
+		return index < words.length && (words[index] & 1L << element) != 0;
+	}
+	
+	/**
+	 * Пересечение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество символов, принадлежащих обоим множествам
+	 */
+	public CharBitmap and(CharBitmap other)
+	{
+		long[] result = new long[Math.min(words.length, other.words.length)];
+		
+		for (int i = 0; i < result.length; i++)
+		{
+			result[i] = words[i] & other.words[i];
+		}
+		
+		return new CharBitmap(result, result.length);
+	}
+	
+	/**
+	 * Объединение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество символов обоих множеств
+	 */
+	public CharBitmap or(CharBitmap other)
+	{
+		long[] result = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+		
+		for (int i = 0; i < other.words.length; i++)
+		{
+			result[i] |= other.words[i];
+		}
+		
+		return new CharBitmap(result, result.length);
+	}
+	
+	/**
+	 * Симметрическая разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество символов, принадлежащих только одному из множеств
+	 */
+	public CharBitmap xor(CharBitmap other)
+	{
+		long[] result = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+		
+		for (int i = 0; i < other.words.length; i++)
+		{
+			result[i] ^= other.words[i];
+		}
+		
+		return new CharBitmap(result, result.length);
+	}
+	
+	/**
+	 * Разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество символов текущего множества, не принадлежащих other
+	 */
+	public CharBitmap andNot(CharBitmap other)
+	{
+		long[] result = Arrays.copyOf(words, words.length);
+		int length = Math.min(words.length, other.words.length);
+		
+		for (int i = 0; i < length; i++)
+		{
+			result[i] &= ~other.words[i];
+		}
+		
+		return new CharBitmap(result, result.length);
+	}
+	
+	/**
+	 * Преобразование в множество символов
+	 *
+	 * @return Множество символов в порядке возрастания кодов
+	 */
+	public CharSet toCharSet()
+	{
+		List<Character> chars = new ArrayList<>(cardinality);
+		
+		for (int i = 0; i < words.length; i++)
+		{
+			long word = words[i];
+			
+			while (word != 0)
+			{
+				chars.add((char) (i << 6 | Long.numberOfTrailingZeros(word)));
+				
+				word &= word - 1;
+			}
+		}
+		
+		return CharSet.ofDistinct(chars);
+	}
+	
+	/**
+	 * Количество используемых слов битовой карты
+	 *
+	 * @return Номер последнего ненулевого слова + 1
+	 */
+	int length()
+	{
+		return words.length;
+	}
+	
+	/**
+	 * Слово битовой карты
+	 *
+	 * @param index Номер слова
+	 * @return Слово с символами [64 * index, 64 * index + 63], 0 за пределами хранимых слов
+	 */
+	long word(int index)
+	{
+		return index < words.length ? words[index] : 0L;
+	}
+	
+	/**
+	 * Сравнение множеств
+	 *
+	 * @param other Другое множество для сравнения
+	 * @return true в случае равенства множеств, false иначе
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
+		{
+			return false;
+		}
+		
+		return Arrays.equals(words, ((CharBitmap) other).words);
+	}
+	
+	/**
+	 * Хеш-код множества<br>
+	 * Вычисляется как XOR перемешанных ненулевых слов, поэтому совпадает с хеш-кодом PersistentCharSet с теми же элементами
+	 *
+	 * @return Хеш-код, зависящий только от элементов множества
+	 */
+	@Override
+	public int hashCode()
+	{
+		long result = 0;
+		
+		for (int i = 0; i < words.length; i++)
+		{
+			result ^= hashWord(i, words[i]);
+		}
+		
+		return (int) (result ^ result >>> 32);
+	}
+	
+	/**
+	 * Представление множества в виде строки
+	 *
+	 * @return Множество в формате {a1, a2, ..., an}, где a1 &lt; a2 &lt; ... &lt; an - элементы множества
+	 */
+	@Override
+	public String toString()
+	{
+		return toCharSet().toString();
+	}
+	
+	/**
+	 * Вклад слова битовой карты в хеш-код множества
+	 *
+	 * @param index Номер слова
+	 * @param word  Слово
+	 * @return 0 для нулевого слова, иначе перемешанные биты слова и его номера
+	 */
+	static long hashWord(int index, long word)
+	{
+		if (word == 0)
+		{
+			return 0L;
+		}
+		
+		long result = (word ^ index * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+		
+		return result ^ result >>> 31;
+	}
+	
+	private static int trimmedLength(long[] words, int length)
+	{
+		while (length > 0 && words[length - 1] == 0)
+		{
+			length--;
+		}
+		
+		return length;
+	}
+	
+	private static int countBits(long[] words, int length)
+	{
+		int result = 0;
+		
+		for (int i = 0; i < length; i++)
+		{
+			result += Long.bitCount(words[i]);
+		}
+		
+		return result;
+	}
+}
@@ -38,11 +38,25 @@ public class CharSet implements Cloneable
 	 */
 	public static CharSet construct(CharSet first, CharSet second)
 	{
-		CharSet result = new CharSet();
+		return construct(first, new CharBitmap(first), second, new CharBitmap(second));
+	}
+	
+	/**
+	 * Создание множества из символов, которые входят только в одно множество, по готовым битовым картам
+	 *
+	 * @param first        Первое множество
+	 * @param firstBitmap  Битовая карта первого множества
+	 * @param second       Второе множество
+	 * @param secondBitmap Битовая карта второго множества
+	 * @return Множество в котором находятся элементы только из одного множества в порядке first, second
+	 */
+	static CharSet construct(CharSet first, CharBitmap firstBitmap, CharSet second, CharBitmap secondBitmap)
+	{
+		List<Character> result = new ArrayList<>(CharBitmap.symmetricDifferenceSize(firstBitmap, secondBitmap));
 		
 		for (Character character : first.chars)
 		{
-			if (!second.contains(character))
+			if (!secondBitmap.contains(character))
 			{
 				result.add(character);
 			}
@@ -50,12 +64,28 @@ public class CharSet implements Cloneable
 		
 		for (Character character : second.chars)
 		{
-			if (!first.contains(character))
+			if (!firstBitmap.contains(character))
 			{
 				result.add(character);
 			}
 		}
 		
+		return ofDistinct(result);
+	}
+	
+	/**
+	 * Создание множества из списка без повторяющихся элементов<br>
+	 * Список не копируется и не проверяется на повторы
+	 *
+	 * @param chars Различные элементы множества
+	 * @return Множество, использующее chars
+	 */
+	static CharSet ofDistinct(List<Character> chars)
+	{
+		CharSet result = new CharSet();
+		
+		result.chars = chars;
+		
 		return result;
 	}
 	
@@ -119,7 +149,7 @@ public class CharSet implements Cloneable
 	 */
 	public boolean contains(char element)
 	{
-		return chars.contains(element);
+		return indexOf(chars, element) >= 0;
 	}
 	
 	/**
@@ -292,7 +322,8 @@ public class CharSet implements Cloneable
 	}
 	
 	/**
-	 * Клонирование множества
+	 * Клонирование множества<br>
+	 * Копия не разделяет список элементов с исходным множеством
 	 *
 	 * @return Новое множество идентичное данному
 	 */
@@ -301,7 +332,11 @@ public class CharSet implements Cloneable
 	{
 		try
 		{
-			return (CharSet) super.clone();
+			CharSet result = (CharSet) super.clone();
+			
+			result.chars = new ArrayList<>(chars);
+			
+			return result;
 		}
 		catch (CloneNotSupportedException supportedException)
 		{
@@ -339,7 +374,8 @@ public class CharSet implements Cloneable
 	}
 	
 	/**
-	 * Сравнение множеств
+	 * Сравнение множеств без учёта порядка элементов<br>
+	 * Сравнение не создаёт промежуточных множеств и не упаковывает элементы в Character
 	 *
 	 * @param other Другое множество для сравнения
 	 * @return true в случае равенства множеств, false иначе
@@ -347,18 +383,80 @@ public class CharSet implements Cloneable
 	@Override
 	public boolean equals(Object other)
 	{
-		if (getClass() != other.getClass())
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
 		{
 			return false;
 		}
 		
 		CharSet ref = (CharSet) other;
 		
-		if (this.cardinality() != ref.cardinality())
+		if (chars.size() != ref.chars.size() || hashCode() != ref.hashCode())
 		{
 			return false;
 		}
 		
-		return this.cardinality() == this.getUnion(ref).cardinality();
+		for (int i = 0; i < chars.size(); i++)
+		{
+			if (indexOf(ref.chars, chars.get(i)) < 0)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Хеш-код множества, совпадающий с хеш-кодом OrderedCharSet с теми же элементами<br>
+	 * Вычисляется как сумма перемешанных элементов, подобно CharBitmap, объединяющему перемешанные слова
+	 *
+	 * @return Хеш-код, не зависящий от порядка элементов
+	 */
+	@Override
+	public int hashCode()
+	{
+		int result = 0;
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			result += hashElement(chars.get(i));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Вклад элемента в хеш-код множества<br>
+	 * Финальное перемешивание MurmurHash3: множества с равной суммой кодов элементов получают разные хеш-коды
+	 *
+	 * @param element Элемент
+	 * @return Перемешанные биты элемента
+	 */
+	static int hashElement(char element)
+	{
+		int result = element + 0x9E3779B9;
+		
+		result = (result ^ result >>> 16) * 0x85EBCA6B;
+		result = (result ^ result >>> 13) * 0xC2B2AE35;
+		
+		return result ^ result >>> 16;
+	}
+	
+	private static int indexOf(List<Character> chars, char element)
+	{
+		for (int i = 0; i < chars.size(); i++)
+		{
+			if (chars.get(i) == element)
+			{
+				return i;
+			}
+		}
+		
+		return -1;
 	}
 }
@@ -0,0 +1,236 @@
+package apps.math.set;
+
+import java.util.stream.IntStream;
+
+/**
+ * Класс описывающий пакетные операции над массивом множеств символов<br>
+ * Каждое множество один раз преобразуется в CharBitmap, после чего пары обрабатываются
+ * пословными битовыми операциями параллельно. Методы, возвращающие только мощности и коэффициенты,
+ * не создают множеств-результатов.<br>
+ * Множества копируются при создании пакета, поэтому последующие изменения исходных множеств
+ * не влияют на результаты
+ */
+public class CharSetBatch
+{
+	private static final int PARALLEL_THRESHOLD = 1 << 10;
+	
+	private final CharSet[] sets;
+	private final CharBitmap[] bitmaps;
+	
+	/**
+	 * Конструктор пакета множеств
+	 *
+	 * @param sets Массив множеств, например из CharSet.createArray (множества копируются)
+	 */
+	public CharSetBatch(CharSet[] sets)
+	{
+		this.sets = new CharSet[sets.length];
+		this.bitmaps = new CharBitmap[sets.length];
+		
+		// Битовая карта строится из той же копии, что хранится в пакете, поэтому они всегда согласованы
+		range(sets.length).forEach(i ->
+		{
+			this.sets[i] = sets[i].clone();
+			bitmaps[i] = new CharBitmap(this.sets[i]);
+		});
+	}
+	
+	/**
+	 * Количество множеств в пакете
+	 *
+	 * @return Размер массива множеств
+	 */
+	public int size()
+	{
+		return sets.length;
+	}
+	
+	/**
+	 * Битовая карта множества
+	 *
+	 * @param index Индекс множества в пакете
+	 * @return Битовая карта множества sets[index]
+	 */
+	public CharBitmap getBitmap(int index)
+	{
+		return bitmaps[index];
+	}
+	
+	/**
+	 * Пакетная версия CharSet.construct
+	 *
+	 * @param first  Индексы первых множеств пар
+	 * @param second Индексы вторых множеств пар
+	 * @return Массив множеств, result[k] = CharSet.construct(sets[first[k]], sets[second[k]])
+	 * @throws Exception Разные размеры массивов
+	 */
+	public CharSet[] construct(int[] first, int[] second) throws Exception
+	{
+		checkPairs(first, second);
+		
+		CharSet[] result = new CharSet[first.length];
+		
+		range(first.length).forEach(k -> result[k] = construct(first[k], second[k]));
+		
+		return result;
+	}
+	
+	/**
+	 * Пакетное вычисление мощностей симметрической разности
+	 *
+	 * @param first  Индексы первых множеств пар
+	 * @param second Индексы вторых множеств пар
+	 * @return Массив мощностей, result[k] = CharSet.construct(sets[first[k]], sets[second[k]]).cardinality()
+	 * @throws Exception Разные размеры массивов
+	 */
+	public int[] symmetricDifferenceSizes(int[] first, int[] second) throws Exception
+	{
+		checkPairs(first, second);
+		
+		int[] result = new int[first.length];
+		
+		range(first.length).forEach(k -> result[k] = CharBitmap.symmetricDifferenceSize(bitmaps[first[k]], bitmaps[second[k]]));
+		
+		return result;
+	}
+	
+	/**
+	 * Пакетное вычисление мощностей пересечения
+	 *
+	 * @param first  Индексы первых множеств пар
+	 * @param second Индексы вторых множеств пар
+	 * @return Массив мощностей, result[k] = |sets[first[k]] ∩ sets[second[k]]|
+	 * @throws Exception Разные размеры массивов
+	 */
+	public int[] intersectionSizes(int[] first, int[] second) throws Exception
+	{
+		checkPairs(first, second);
+		
+		int[] result = new int[first.length];
+		
+		range(first.length).forEach(k -> result[k] = CharBitmap.intersectionSize(bitmaps[first[k]], bitmaps[second[k]]));
+		
+		return result;
+	}
+	
+	/**
+	 * Пакетное вычисление коэффициентов Жаккара
+	 *
+	 * @param first  Индексы первых множеств пар
+	 * @param second Индексы вторых множеств пар
+	 * @return Массив коэффициентов, result[k] = |A ∩ B| / |A ∪ B| для A = sets[first[k]], B = sets[second[k]]
+	 * @throws Exception Разные размеры массивов
+	 */
+	public double[] jaccard(int[] first, int[] second) throws Exception
+	{
+		checkPairs(first, second);
+		
+		double[] result = new double[first.length];
+		
+		range(first.length).forEach(k -> result[k] = CharBitmap.jaccard(bitmaps[first[k]], bitmaps[second[k]]));
+		
+		return result;
+	}
+	
+	/**
+	 * CharSet.construct для всех пар (i, j), i &lt; j
+	 *
+	 * @return Массив множеств в порядке (0, 1), (0, 2), ..., (0, n - 1), (1, 2), ..., индекс пары - pairIndex(i, j)
+	 */
+	public CharSet[] constructAllPairs()
+	{
+		CharSet[] result = new CharSet[pairCount()];
+		
+		range(sets.length, result.length).forEach(i ->
+		{
+			for (int j = i + 1, k = pairIndex(i, j); j < sets.length; j++, k++)
+			{
+				result[k] = construct(i, j);
+			}
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Мощности пересечения для всех пар (i, j), i &lt; j
+	 *
+	 * @return Массив мощностей, индекс пары - pairIndex(i, j)
+	 */
+	public int[] intersectionSizesAllPairs()
+	{
+		int[] result = new int[pairCount()];
+		
+		range(sets.length, result.length).forEach(i ->
+		{
+			for (int j = i + 1, k = pairIndex(i, j); j < sets.length; j++, k++)
+			{
+				result[k] = CharBitmap.intersectionSize(bitmaps[i], bitmaps[j]);
+			}
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Коэффициенты Жаккара для всех пар (i, j), i &lt; j
+	 *
+	 * @return Массив коэффициентов, индекс пары - pairIndex(i, j)
+	 */
+	public double[] jaccardAllPairs()
+	{
+		double[] result = new double[pairCount()];
+		
+		range(sets.length, result.length).forEach(i ->
+		{
+			for (int j = i + 1, k = pairIndex(i, j); j < sets.length; j++, k++)
+			{
+				result[k] = CharBitmap.jaccard(bitmaps[i], bitmaps[j]);
+			}
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Индекс пары в результатах методов *AllPairs
+	 *
+	 * @param i Индекс первого множества
+	 * @param j Индекс второго множества, i &lt; j
+	 * @return Индекс пары (i, j)
+	 */
+	public int pairIndex(int i, int j)
+	{
+		return (int) ((long) i * (2L * sets.length - i - 1) / 2) + (j - i - 1);
+	}
+	
+	private CharSet construct(int first, int second)
+	{
+		return CharSet.construct(sets[first], bitmaps[first], sets[second], bitmaps[second]);
+	}
+	
+	private int pairCount()
+	{
+		return Math.toIntExact((long) sets.length * (sets.length - 1) / 2);
+	}
+	
+	private static IntStream range(int count)
+	{
+		return range(count, count);
+	}
+	
+	private static IntStream range(int count, int work)
+	{
+		IntStream stream = IntStream.range(0, count);
+		
+		return work >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+	}
+	
+	private static void checkPairs(int[] first, int[] second) throws Exception
+	{
+		if (first.length != second.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+	}
+}
@@ -0,0 +1,658 @@
+package apps.math.set;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import apps.math.set.exceptions.UnboundVariableException;
+import apps.math.set.exceptions.WrongExpressionFormatException;
+
+/**
+ * Класс описывающий ленивое выражение над множествами символов<br>
+ * Выражение строит дерево операций без вычисления промежуточных множеств.
+ * При вычислении дерево обходится для каждого 64-битного слова результата (слитное пословное вычисление),
+ * поэтому промежуточные множества не создаются. Операции с пустым и полным множеством
+ * и с одинаковыми операндами упрощаются при построении.<br>
+ * Операнды-множества копируются в момент создания выражения, поэтому вычисленный результат кешируется.<br>
+ * Синтаксис parse: A ∪ B (или |, +), A ∩ B (или &amp;, *), A \ B (или -), A Δ B (или ^), ~A - дополнение,
+ * [abc] - множество из перечисленных символов. ∩ выполняется раньше остальных двуместных операций,
+ * остальные выполняются слева направо
+ */
+public final class CharSetExpr
+{
+	private enum Operation
+	{
+		CONSTANT,
+		VARIABLE,
+		UNION,
+		INTERSECTION,
+		DIFFERENCE,
+		SYMMETRIC_DIFFERENCE,
+		COMPLEMENT
+	}
+	
+	private static final CharSetExpr EMPTY = new CharSetExpr(CharBitmap.empty());
+	private static final CharSetExpr ALL = new CharSetExpr(full());
+	private static final int PARSED_CAPACITY = 256;
+	private static final String OPERATORS = "∪|+∩&*\\-Δ^~()[]";
+	
+	/**
+	 * Кеш разобранных выражений, вытесняющий давно не использованные выражения сверх PARSED_CAPACITY
+	 */
+	private static final Map<String, CharSetExpr> PARSED = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CharSetExpr> eldest)
+		{
+			return size() > PARSED_CAPACITY;
+		}
+	});
+	
+	private final Operation operation;
+	private final CharSetExpr left;
+	private final CharSetExpr right;
+	private final String name;
+	private final int length;
+	private volatile CharBitmap value;
+	
+	/**
+	 * Выражение из множества символов
+	 *
+	 * @param set Множество символов (копируется)
+	 * @return Выражение, значение которого равно set
+	 */
+	public static CharSetExpr of(CharSet set)
+	{
+		return of(new CharBitmap(set));
+	}
+	
+	/**
+	 * Выражение из битовой карты
+	 *
+	 * @param bitmap Битовая карта
+	 * @return Выражение, значение которого равно bitmap
+	 */
+	public static CharSetExpr of(CharBitmap bitmap)
+	{
+		if (bitmap.cardinality() == 0)
+		{
+			return EMPTY;
+		}
+		
+		if (bitmap.cardinality() == Character.MAX_VALUE + 1)
+		{
+			return ALL;
+		}
+		
+		return new CharSetExpr(bitmap);
+	}
+	
+	/**
+	 * Пустое множество
+	 *
+	 * @return Выражение пустого множества
+	 */
+	public static CharSetExpr empty()
+	{
+		return EMPTY;
+	}
+	
+	/**
+	 * Множество всех символов
+	 *
+	 * @return Выражение полного множества
+	 */
+	public static CharSetExpr all()
+	{
+		return ALL;
+	}
+	
+	/**
+	 * Именованный операнд, значение которого задаётся в bind
+	 *
+	 * @param name Имя операнда
+	 * @return Выражение-переменная
+	 */
+	public static CharSetExpr variable(String name)
+	{
+		return new CharSetExpr(Operation.VARIABLE, null, null, name, CharBitmap.WORDS);
+	}
+	
+	/**
+	 * Разбор выражения с кешированием результата по тексту выражения<br>
+	 * Кешируются последние PARSED_CAPACITY использованных выражений
+	 *
+	 * @param expression Текст выражения, например (A ∪ B) \ (C ∩ D) Δ E
+	 * @return Выражение с переменными
+	 * @throws WrongExpressionFormatException Неверный формат выражения
+	 */
+	public static CharSetExpr parse(String expression) throws WrongExpressionFormatException
+	{
+		CharSetExpr result = PARSED.get(expression);
+		
+		if (result == null)
+		{
+			result = new Parser(expression).parse();
+			
+			PARSED.put(expression, result);
+		}
+		
+		return result;
+	}
+	
+	private CharSetExpr(CharBitmap bitmap)
+	{
+		this(Operation.CONSTANT, null, null, null, bitmap.length());
+		
+		value = bitmap;
+	}
+	
+	private CharSetExpr(Operation operation, CharSetExpr left, CharSetExpr right, String name, int length)
+	{
+		this.operation = operation;
+		this.left = left;
+		this.right = right;
+		this.name = name;
+		this.length = length;
+	}
+	
+	/**
+	 * Объединение
+	 *
+	 * @param other Другое выражение
+	 * @return Выражение this ∪ other
+	 */
+	public CharSetExpr union(CharSetExpr other)
+	{
+		if (this == other || other == EMPTY || this == ALL)
+		{
+			return this;
+		}
+		
+		if (this == EMPTY || other == ALL)
+		{
+			return other;
+		}
+		
+		return new CharSetExpr(Operation.UNION, this, other, null, Math.max(length, other.length));
+	}
+	
+	/**
+	 * Пересечение
+	 *
+	 * @param other Другое выражение
+	 * @return Выражение this ∩ other
+	 */
+	public CharSetExpr intersection(CharSetExpr other)
+	{
+		if (this == other || other == ALL || this == EMPTY)
+		{
+			return this;
+		}
+		
+		if (this == ALL || other == EMPTY)
+		{
+			return other;
+		}
+		
+		return new CharSetExpr(Operation.INTERSECTION, this, other, null, Math.min(length, other.length));
+	}
+	
+	/**
+	 * Разность
+	 *
+	 * @param other Другое выражение
+	 * @return Выражение this \ other
+	 */
+	public CharSetExpr difference(CharSetExpr other)
+	{
+		if (this == other || other == ALL || this == EMPTY)
+		{
+			return EMPTY;
+		}
+		
+		if (other == EMPTY)
+		{
+			return this;
+		}
+		
+		if (this == ALL)
+		{
+			return other.complement();
+		}
+		
+		return new CharSetExpr(Operation.DIFFERENCE, this, other, null, length);
+	}
+	
+	/**
+	 * Симметрическая разность
+	 *
+	 * @param other Другое выражение
+	 * @return Выражение this Δ other
+	 */
+	public CharSetExpr symmetricDifference(CharSetExpr other)
+	{
+		if (this == other)
+		{
+			return EMPTY;
+		}
+		
+		if (other == EMPTY)
+		{
+			return this;
+		}
+		
+		if (this == EMPTY)
+		{
+			return other;
+		}
+		
+		if (other == ALL)
+		{
+			return complement();
+		}
+		
+		if (this == ALL)
+		{
+			return other.complement();
+		}
+		
+		return new CharSetExpr(Operation.SYMMETRIC_DIFFERENCE, this, other, null, Math.max(length, other.length));
+	}
+	
+	/**
+	 * Дополнение до множества всех символов
+	 *
+	 * @return Выражение ~this
+	 */
+	public CharSetExpr complement()
+	{
+		if (this == EMPTY)
+		{
+			return ALL;
+		}
+		
+		if (this == ALL)
+		{
+			return EMPTY;
+		}
+		
+		if (operation == Operation.COMPLEMENT)
+		{
+			return left;
+		}
+		
+		return new CharSetExpr(Operation.COMPLEMENT, this, null, null, CharBitmap.WORDS);
+	}
+	
+	/**
+	 * Подстановка значений переменных
+	 *
+	 * @param bindings Значения переменных
+	 * @return Выражение без переменных
+	 * @throws WrongExpressionFormatException Значение переменной не задано (UnboundVariableException)
+	 */
+	public CharSetExpr bind(Map<String, CharSet> bindings) throws WrongExpressionFormatException
+	{
+		switch (operation)
+		{
+			case CONSTANT:
+				return this;
+			case VARIABLE:
+				CharSet set = bindings.get(name);
+				
+				if (set == null)
+				{
+					throw new UnboundVariableException(name);
+				}
+				
+				return of(set);
+			case UNION:
+				return left.bind(bindings).union(right.bind(bindings));
+			case INTERSECTION:
+				return left.bind(bindings).intersection(right.bind(bindings));
+			case DIFFERENCE:
+				return left.bind(bindings).difference(right.bind(bindings));
+			case SYMMETRIC_DIFFERENCE:
+				return left.bind(bindings).symmetricDifference(right.bind(bindings));
+			default:
+				return left.bind(bindings).complement();
+		}
+	}
+	
+	/**
+	 * Проверка на наличие элемента в значении выражения без его вычисления
+	 *
+	 * @param element Проверяемый элемент
+	 * @return true в случае присутствия элемента, false иначе
+	 * @throws IllegalStateException В выражении есть переменные без значения
+	 */
+	public boolean contains(char element) throws IllegalStateException
+	{
+		CharBitmap computed = value;
+		
+		if (computed != null)
+		{
+			return computed.contains(element);
+		}
+		
+		return (word(element >>> 6) & 1L << element) != 0;
+	}
+	
+	/**
+	 * Мощность значения выражения без построения промежуточных и итогового множеств
+	 *
+	 * @return Мощность множества
+	 * @throws IllegalStateException В выражении есть переменные без значения
+	 */
+	public int cardinality() throws IllegalStateException
+	{
+		CharBitmap computed = value;
+		
+		if (computed != null)
+		{
+			return computed.cardinality();
+		}
+		
+		int result = 0;
+		
+		for (int i = 0; i < length; i++)
+		{
+			result += Long.bitCount(word(i));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Вычисление выражения за один пословный проход<br>
+	 * Результат кешируется в выражении
+	 *
+	 * @return Битовая карта значения выражения
+	 * @throws IllegalStateException В выражении есть переменные без значения
+	 */
+	public CharBitmap evaluate() throws IllegalStateException
+	{
+		CharBitmap computed = value;
+		
+		if (computed == null)
+		{
+			long[] words = new long[length];
+			
+			for (int i = 0; i < length; i++)
+			{
+				words[i] = word(i);
+			}
+			
+			computed = new CharBitmap(words, length);
+			value = computed;
+		}
+		
+		return computed;
+	}
+	
+	/**
+	 * Вычисление выражения в виде множества символов
+	 *
+	 * @return Множество символов в порядке возрастания кодов
+	 * @throws IllegalStateException В выражении есть переменные без значения
+	 */
+	public CharSet toCharSet() throws IllegalStateException
+	{
+		return evaluate().toCharSet();
+	}
+	
+	/**
+	 * Представление выражения в виде строки
+	 *
+	 * @return Выражение в полной скобочной записи
+	 */
+	@Override
+	public String toString()
+	{
+		switch (operation)
+		{
+			case CONSTANT:
+				return this == ALL ? "~[]" : "[" + (value.cardinality() > 16 ? value.cardinality() + " символов" : charsOf(value)) + "]";
+			case VARIABLE:
+				return name;
+			case UNION:
+				return "(" + left + " ∪ " + right + ")";
+			case INTERSECTION:
+				return "(" + left + " ∩ " + right + ")";
+			case DIFFERENCE:
+				return "(" + left + " \\ " + right + ")";
+			case SYMMETRIC_DIFFERENCE:
+				return "(" + left + " Δ " + right + ")";
+			default:
+				return "~" + left;
+		}
+	}
+	
+	private long word(int index)
+	{
+		if (index >= length)
+		{
+			return 0L;
+		}
+		
+		switch (operation)
+		{
+			case CONSTANT:
+				return value.word(index);
+			case VARIABLE:
+				throw new IllegalStateException("Не задано значение переменной " + name);
+			case UNION:
+				return left.word(index) | right.word(index);
+			case INTERSECTION:
+				long first = left.word(index);
+				
+				return first == 0 ? 0L : first & right.word(index);
+			case DIFFERENCE:
+				long minuend = left.word(index);
+				
+				return minuend == 0 ? 0L : minuend & ~right.word(index);
+			case SYMMETRIC_DIFFERENCE:
+				return left.word(index) ^ right.word(index);
+			default:
+				return ~left.word(index);
+		}
+	}
+	
+	private static String charsOf(CharBitmap bitmap)
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		for (char character : bitmap.toCharSet().getChars())
+		{
+			builder.append(character);
+		}
+		
+		return builder.toString();
+	}
+	
+	private static CharBitmap full()
+	{
+		long[] words = new long[CharBitmap.WORDS];
+		
+		Arrays.fill(words, -1L);
+		
+		return new CharBitmap(words, words.length);
+	}
+	
+	/**
+	 * Разбор выражения рекурсивным спуском
+	 */
+	private static class Parser
+	{
+		private final String text;
+		private int position;
+		
+		private Parser(String text)
+		{
+			this.text = text;
+		}
+		
+		private CharSetExpr parse() throws WrongExpressionFormatException
+		{
+			CharSetExpr result = parseExpression();
+			
+			skipSpaces();
+			
+			if (position != text.length())
+			{
+				throw error("лишние символы");
+			}
+			
+			return result;
+		}
+		
+		private CharSetExpr parseExpression() throws WrongExpressionFormatException
+		{
+			CharSetExpr result = parseTerm();
+			
+			while (true)
+			{
+				skipSpaces();
+				
+				if (accept('∪', '|', '+'))
+				{
+					result = result.union(parseTerm());
+				}
+				else if (accept('\\', '-'))
+				{
+					result = result.difference(parseTerm());
+				}
+				else if (accept('Δ', '^'))
+				{
+					result = result.symmetricDifference(parseTerm());
+				}
+				else
+				{
+					return result;
+				}
+			}
+		}
+		
+		private CharSetExpr parseTerm() throws WrongExpressionFormatException
+		{
+			CharSetExpr result = parseFactor();
+			
+			while (true)
+			{
+				skipSpaces();
+				
+				if (accept('∩', '&', '*'))
+				{
+					result = result.intersection(parseFactor());
+				}
+				else
+				{
+					return result;
+				}
+			}
+		}
+		
+		private CharSetExpr parseFactor() throws WrongExpressionFormatException
+		{
+			skipSpaces();
+			
+			if (position == text.length())
+			{
+				throw error("ожидался операнд");
+			}
+			
+			char current = text.charAt(position);
+			
+			if (accept('~'))
+			{
+				return parseFactor().complement();
+			}
+			
+			if (accept('('))
+			{
+				CharSetExpr result = parseExpression();
+				
+				skipSpaces();
+				
+				if (!accept(')'))
+				{
+					throw error("ожидалась ')'");
+				}
+				
+				return result;
+			}
+			
+			if (accept('['))
+			{
+				int end = text.indexOf(']', position);
+				
+				if (end < 0)
+				{
+					throw error("ожидалась ']'");
+				}
+				
+				CharBitmap bitmap = new CharBitmap(text.substring(position, end).toCharArray());
+				
+				position = end + 1;
+				
+				return of(bitmap);
+			}
+			
+			if (isIdentifier(current))
+			{
+				int start = position;
+				
+				while (position < text.length() && isIdentifier(text.charAt(position)))
+				{
+					position++;
+				}
+				
+				return variable(text.substring(start, position));
+			}
+			
+			throw error("неожиданный символ '" + current + "'");
+		}
+		
+		/**
+		 * Символ имени переменной<br>
+		 * Символы операций проверяются первыми: Δ является буквой, но A Δ B и AΔB - симметрическая разность
+		 */
+		private static boolean isIdentifier(char character)
+		{
+			return OPERATORS.indexOf(character) < 0 && (Character.isLetterOrDigit(character) || character == '_');
+		}
+		
+		private boolean accept(char... expected)
+		{
+			if (position < text.length())
+			{
+				for (char character : expected)
+				{
+					if (text.charAt(position) == character)
+					{
+						position++;
+						
+						return true;
+					}
+				}
+			}
+			
+			return false;
+		}
+		
+		private void skipSpaces()
+		{
+			while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+			{
+				position++;
+			}
+		}
+		
+		private WrongExpressionFormatException error(String reason)
+		{
+			return new WrongExpressionFormatException(text, position, reason);
+		}
+	}
+}
@@ -0,0 +1,437 @@
+package apps.math.set;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс описывающий поиск символов множества в тексте<br>
+ * Множество компилируется в таблицу для Latin-1 и битовую карту для остальной части BMP,
+ * поэтому проверка символа выполняется за O(1) без упаковки в Character.<br>
+ * Текст в UTF-8 декодируется на лету, символы вне BMP проверяются как пара суррогатов,
+ * неверные последовательности байт считаются символом U+FFFD
+ */
+public class CharSetScanner
+{
+	private static final int MAPPED_CHUNK = 1 << 30;
+	
+	private final byte[] latin1 = new byte[256];
+	private final long[] bits = new long[CharBitmap.WORDS];
+	
+	/**
+	 * Конструктор поиска по множеству символов
+	 *
+	 * @param set Множество искомых символов
+	 */
+	public CharSetScanner(CharSet set)
+	{
+		List<Character> chars = set.getChars();
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			char character = chars.get(i);
+			
+			bits[character >>> 6] |= 1L << character;
+			
+			if (character < 256)
+			{
+				latin1[character] = 1;
+			}
+		}
+	}
+	
+	/**
+	 * Проверка на наличие символа в множестве
+	 *
+	 * @param character Проверяемый символ
+	 * @return true в случае присутствия символа в множестве, false иначе
+	 */
+	public boolean matches(char character)
+	{
+		return character < 256 ? latin1[character] != 0 : (bits[character >>> 6] & 1L << character) != 0;
+	}
+	
+	/**
+	 * Поиск первого символа множества в тексте
+	 *
+	 * @param text Текст
+	 * @param from Индекс начала поиска
+	 * @return Индекс первого символа множества, -1 если такого символа нет
+	 */
+	public int indexOfAny(CharSequence text, int from)
+	{
+		for (int i = Math.max(from, 0); i < text.length(); i++)
+		{
+			if (matches(text.charAt(i)))
+			{
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Поиск первого символа множества в тексте
+	 *
+	 * @param text Текст
+	 * @return Индекс первого символа множества, -1 если такого символа нет
+	 */
+	public int indexOfAny(CharSequence text)
+	{
+		return indexOfAny(text, 0);
+	}
+	
+	/**
+	 * Поиск первого символа множества в буфере (позиция буфера не изменяется)
+	 *
+	 * @param buffer Буфер символов
+	 * @return Индекс первого символа множества относительно позиции буфера, -1 если такого символа нет
+	 */
+	public int indexOfAny(CharBuffer buffer)
+	{
+		int position = buffer.position();
+		int limit = buffer.limit();
+		
+		if (buffer.hasArray())
+		{
+			char[] array = buffer.array();
+			int offset = buffer.arrayOffset();
+			
+			for (int i = position; i < limit; i++)
+			{
+				if (matches(array[offset + i]))
+				{
+					return i - position;
+				}
+			}
+		}
+		else
+		{
+			for (int i = position; i < limit; i++)
+			{
+				if (matches(buffer.get(i)))
+				{
+					return i - position;
+				}
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Поиск первого символа множества в тексте в кодировке UTF-8
+	 *
+	 * @param utf8   Байты текста
+	 * @param offset Индекс начала поиска
+	 * @param length Количество байт для поиска
+	 * @return Индекс первого байта найденного символа, -1 если такого символа нет
+	 */
+	public int indexOfAny(byte[] utf8, int offset, int length)
+	{
+		int end = offset + length;
+		int i = offset;
+		
+		while (i < end)
+		{
+			int first = utf8[i];
+			
+			if (first >= 0)
+			{
+				if (latin1[first] != 0)
+				{
+					return i;
+				}
+				
+				i++;
+				
+				continue;
+			}
+			
+			int decoded = decode(utf8, i, end);
+			int codePoint = decoded & 0x1FFFFF;
+			
+			if (matchesCodePoint(codePoint) != 0)
+			{
+				return i;
+			}
+			
+			i += decoded >>> 21;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Количество символов множества в тексте
+	 *
+	 * @param text Текст
+	 * @return Количество символов текста, принадлежащих множеству
+	 */
+	public long countMatches(CharSequence text)
+	{
+		long result = 0;
+		
+		for (int i = 0; i < text.length(); i++)
+		{
+			if (matches(text.charAt(i)))
+			{
+				result++;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Количество символов множества в буфере (позиция буфера не изменяется)
+	 *
+	 * @param buffer Буфер символов
+	 * @return Количество символов между position и limit, принадлежащих множеству
+	 */
+	public long countMatches(CharBuffer buffer)
+	{
+		long result = 0;
+		
+		for (int i = buffer.position(); i < buffer.limit(); i++)
+		{
+			if (matches(buffer.get(i)))
+			{
+				result++;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Количество символов множества в тексте в кодировке UTF-8
+	 *
+	 * @param utf8   Байты текста
+	 * @param offset Индекс первого байта
+	 * @param length Количество байт
+	 * @return Количество символов (char) текста, принадлежащих множеству
+	 */
+	public long countMatches(byte[] utf8, int offset, int length)
+	{
+		int end = offset + length;
+		long result = 0;
+		int i = offset;
+		
+		while (i < end)
+		{
+			int first = utf8[i];
+			
+			if (first >= 0)
+			{
+				result += latin1[first];
+				i++;
+			}
+			else
+			{
+				int decoded = decode(utf8, i, end);
+				
+				result += matchesCodePoint(decoded & 0x1FFFFF);
+				i += decoded >>> 21;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Количество символов множества в файле в кодировке UTF-8<br>
+	 * Файл отображается в память частями не более 1 ГБ
+	 *
+	 * @param file Путь к файлу
+	 * @return Количество символов (char) файла, принадлежащих множеству
+	 * @throws IOException Ошибка чтения файла
+	 */
+	public long countMatches(Path file) throws IOException
+	{
+		long result = 0;
+		byte[] chunk = new byte[1 << 16];
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			long position = 0;
+			
+			while (position < size)
+			{
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_CHUNK, size - position));
+				int carry = 0;
+				
+				while (mapped.hasRemaining())
+				{
+					int length = Math.min(chunk.length - carry, mapped.remaining());
+					
+					mapped.get(chunk, carry, length);
+					length += carry;
+					
+					int complete = completeLength(chunk, length, !mapped.hasRemaining() && position + mapped.limit() == size);
+					
+					result += countMatches(chunk, 0, complete);
+					carry = length - complete;
+					
+					System.arraycopy(chunk, complete, chunk, 0, carry);
+				}
+				
+				position += mapped.limit() - carry;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Разбиение текста по символам множества
+	 *
+	 * @param text Текст
+	 * @return Непустые части текста между символами множества
+	 */
+	public List<String> splitOn(CharSequence text)
+	{
+		List<String> result = new ArrayList<>();
+		int start = 0;
+		
+		for (int i = 0; i < text.length(); i++)
+		{
+			if (matches(text.charAt(i)))
+			{
+				if (i > start)
+				{
+					result.add(text.subSequence(start, i).toString());
+				}
+				
+				start = i + 1;
+			}
+		}
+		
+		if (text.length() > start)
+		{
+			result.add(text.subSequence(start, text.length()).toString());
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Удаление из текста символов, не принадлежащих множеству
+	 *
+	 * @param text Текст
+	 * @return Текст только из символов множества
+	 */
+	public String retainOnly(CharSequence text)
+	{
+		char[] result = new char[text.length()];
+		int length = 0;
+		
+		for (int i = 0; i < text.length(); i++)
+		{
+			char character = text.charAt(i);
+			
+			if (matches(character))
+			{
+				result[length++] = character;
+			}
+		}
+		
+		return new String(result, 0, length);
+	}
+	
+	private int matchesCodePoint(int codePoint)
+	{
+		if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+		{
+			return matches((char) codePoint) ? 1 : 0;
+		}
+		
+		return (matches(Character.highSurrogate(codePoint)) ? 1 : 0) + (matches(Character.lowSurrogate(codePoint)) ? 1 : 0);
+	}
+	
+	/**
+	 * Декодирование символа UTF-8, начинающегося с не ASCII байта
+	 *
+	 * @return Код символа в младших 21 битах и длина последовательности в старших битах
+	 */
+	private static int decode(byte[] utf8, int index, int end)
+	{
+		int first = utf8[index] & 0xFF;
+		int length;
+		int codePoint;
+		
+		if ((first & 0xE0) == 0xC0)
+		{
+			length = 2;
+			codePoint = first & 0x1F;
+		}
+		else if ((first & 0xF0) == 0xE0)
+		{
+			length = 3;
+			codePoint = first & 0x0F;
+		}
+		else if ((first & 0xF8) == 0xF0)
+		{
+			length = 4;
+			codePoint = first & 0x07;
+		}
+		else
+		{
+			return 1 << 21 | 0xFFFD;
+		}
+		
+		if (index + length > end)
+		{
+			return 1 << 21 | 0xFFFD;
+		}
+		
+		for (int i = 1; i < length; i++)
+		{
+			int next = utf8[index + i];
+			
+			if ((next & 0xC0) != 0x80)
+			{
+				return 1 << 21 | 0xFFFD;
+			}
+			
+			codePoint = codePoint << 6 | next & 0x3F;
+		}
+		
+		if (codePoint > Character.MAX_CODE_POINT)
+		{
+			return 1 << 21 | 0xFFFD;
+		}
+		
+		return length << 21 | codePoint;
+	}
+	
+	/**
+	 * Длина части буфера, не обрывающей последовательность UTF-8 посередине
+	 */
+	private static int completeLength(byte[] utf8, int length, boolean last)
+	{
+		int start = length - 1;
+		
+		while (start >= 0 && length - start <= 4 && (utf8[start] & 0xC0) == 0x80)
+		{
+			start--;
+		}
+		
+		if (last || start < 0 || length - start > 4 || utf8[start] >= 0)
+		{
+			return length;
+		}
+		
+		int first = utf8[start] & 0xFF;
+		int needed = (first & 0xE0) == 0xC0 ? 2 : (first & 0xF0) == 0xE0 ? 3 : (first & 0xF8) == 0xF0 ? 4 : 1;
+		
+		return start + needed > length ? start : length;
+	}
+}
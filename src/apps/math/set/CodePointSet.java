@@ -0,0 +1,557 @@
+package apps.math.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Класс описывающий неизменяемое множество кодов символов Unicode, включая символы вне BMP<br>
+ * Множество хранится как список инверсий: отсортированный массив границ [начало, конец) непересекающихся диапазонов.
+ * Память пропорциональна количеству диапазонов, а не количеству символов; contains выполняется двоичным поиском,
+ * операции над множествами - одним линейным слиянием списков границ
+ */
+public final class CodePointSet
+{
+	private static final int UNION = 0b1110;
+	private static final int INTERSECTION = 0b1000;
+	private static final int DIFFERENCE = 0b0100;
+	private static final int SYMMETRIC_DIFFERENCE = 0b0110;
+	private static final int END = Character.MAX_CODE_POINT + 1;
+	private static final CodePointSet EMPTY = new CodePointSet(new int[0]);
+	private static final CodePointSet ALL = new CodePointSet(new int[] {0, END});
+	private static final AtomicReferenceArray<CodePointSet> CATEGORIES = new AtomicReferenceArray<>(32);
+	
+	private final int[] bounds;
+	
+	/**
+	 * Пустое множество
+	 *
+	 * @return Пустое множество
+	 */
+	public static CodePointSet empty()
+	{
+		return EMPTY;
+	}
+	
+	/**
+	 * Множество всех кодов символов от U+0000 до U+10FFFF
+	 *
+	 * @return Полное множество
+	 */
+	public static CodePointSet all()
+	{
+		return ALL;
+	}
+	
+	/**
+	 * Создание множества из перечисления кодов символов
+	 *
+	 * @param codePoints Коды символов
+	 * @return Множество из codePoints
+	 * @throws IllegalArgumentException Код вне диапазона U+0000 - U+10FFFF
+	 */
+	public static CodePointSet of(int... codePoints) throws IllegalArgumentException
+	{
+		int[] sorted = codePoints.clone();
+		
+		Arrays.sort(sorted);
+		
+		int[] bounds = new int[2 * sorted.length];
+		int length = 0;
+		
+		for (int codePoint : sorted)
+		{
+			check(codePoint);
+			
+			if (length > 0 && bounds[length - 1] >= codePoint)
+			{
+				bounds[length - 1] = Math.max(bounds[length - 1], codePoint + 1);
+			}
+			else
+			{
+				bounds[length++] = codePoint;
+				bounds[length++] = codePoint + 1;
+			}
+		}
+		
+		return create(bounds, length);
+	}
+	
+	/**
+	 * Создание множества из кодов символов строки (суррогатные пары объединяются в один код)
+	 *
+	 * @param text Текст
+	 * @return Множество кодов символов text
+	 */
+	public static CodePointSet of(CharSequence text)
+	{
+		return of(text.codePoints().toArray());
+	}
+	
+	/**
+	 * Создание множества из множества символов
+	 *
+	 * @param set Множество символов
+	 * @return Множество с теми же кодами символов
+	 */
+	public static CodePointSet of(CharSet set)
+	{
+		List<Character> chars = set.getChars();
+		int[] codePoints = new int[chars.size()];
+		
+		for (int i = 0; i < codePoints.length; i++)
+		{
+			codePoints[i] = chars.get(i);
+		}
+		
+		return of(codePoints);
+	}
+	
+	/**
+	 * Диапазон кодов символов
+	 *
+	 * @param first Первый код диапазона
+	 * @param last  Последний код диапазона (включительно)
+	 * @return Множество кодов от first до last
+	 * @throws IllegalArgumentException Код вне диапазона U+0000 - U+10FFFF
+	 */
+	public static CodePointSet range(int first, int last) throws IllegalArgumentException
+	{
+		return ranges(first, last);
+	}
+	
+	/**
+	 * Объединение диапазонов кодов символов
+	 *
+	 * @param firstLastPairs Пары (первый код, последний код включительно) в любом порядке, диапазоны могут пересекаться
+	 * @return Множество кодов всех диапазонов
+	 * @throws IllegalArgumentException Нечётное количество чисел или код вне диапазона U+0000 - U+10FFFF
+	 */
+	public static CodePointSet ranges(int... firstLastPairs) throws IllegalArgumentException
+	{
+		if (firstLastPairs.length % 2 != 0)
+		{
+			throw new IllegalArgumentException("Диапазоны должны задаваться парами чисел");
+		}
+		
+		long[] pairs = new long[firstLastPairs.length / 2];
+		int count = 0;
+		
+		for (int i = 0; i < firstLastPairs.length; i += 2)
+		{
+			int first = check(firstLastPairs[i]);
+			int last = check(firstLastPairs[i + 1]);
+			
+			if (first <= last)
+			{
+				pairs[count++] = (long) first << 32 | last + 1;
+			}
+		}
+		
+		Arrays.sort(pairs, 0, count);
+		
+		int[] bounds = new int[2 * count];
+		int length = 0;
+		
+		for (int i = 0; i < count; i++)
+		{
+			int start = (int) (pairs[i] >>> 32);
+			int end = (int) pairs[i];
+			
+			if (length > 0 && bounds[length - 1] >= start)
+			{
+				bounds[length - 1] = Math.max(bounds[length - 1], end);
+			}
+			else
+			{
+				bounds[length++] = start;
+				bounds[length++] = end;
+			}
+		}
+		
+		return create(bounds, length);
+	}
+	
+	/**
+	 * Множество символов общей категории Unicode<br>
+	 * Множество строится один раз для каждой категории и кешируется
+	 *
+	 * @param type Категория, одна из констант Character, например Character.UPPERCASE_LETTER
+	 * @return Множество кодов символов категории type
+	 * @throws IllegalArgumentException Неизвестная категория
+	 */
+	public static CodePointSet category(int type) throws IllegalArgumentException
+	{
+		if (type < 0 || type >= CATEGORIES.length())
+		{
+			throw new IllegalArgumentException("Неизвестная категория Unicode: " + type);
+		}
+		
+		CodePointSet result = CATEGORIES.get(type);
+		
+		if (result == null)
+		{
+			int[] bounds = new int[64];
+			int length = 0;
+			boolean inside = false;
+			
+			for (int codePoint = 0; codePoint <= END; codePoint++)
+			{
+				boolean matches = codePoint < END && Character.getType(codePoint) == type;
+				
+				if (matches != inside)
+				{
+					if (length == bounds.length)
+					{
+						bounds = Arrays.copyOf(bounds, length * 2);
+					}
+					
+					bounds[length++] = codePoint;
+					inside = matches;
+				}
+			}
+			
+			CATEGORIES.compareAndSet(type, null, create(bounds, length));
+			result = CATEGORIES.get(type);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Объединение нескольких категорий Unicode
+	 *
+	 * @param types Категории, константы Character
+	 * @return Множество кодов символов, принадлежащих одной из категорий
+	 * @throws IllegalArgumentException Неизвестная категория
+	 */
+	public static CodePointSet categories(int... types) throws IllegalArgumentException
+	{
+		CodePointSet result = EMPTY;
+		
+		for (int type : types)
+		{
+			result = result.getUnion(category(type));
+		}
+		
+		return result;
+	}
+	
+	private CodePointSet(int[] bounds)
+	{
+		this.bounds = bounds;
+	}
+	
+	/**
+	 * Мощность множества
+	 *
+	 * @return Количество кодов символов в множестве
+	 */
+	public int cardinality()
+	{
+		int result = 0;
+		
+		for (int i = 0; i < bounds.length; i += 2)
+		{
+			result += bounds[i + 1] - bounds[i];
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Проверка множества на пустоту
+	 *
+	 * @return true если множество пусто, false иначе
+	 */
+	public boolean isEmpty()
+	{
+		return bounds.length == 0;
+	}
+	
+	/**
+	 * Количество непересекающихся диапазонов множества
+	 *
+	 * @return Количество диапазонов
+	 */
+	public int rangeCount()
+	{
+		return bounds.length / 2;
+	}
+	
+	/**
+	 * Первый код диапазона
+	 *
+	 * @param index Индекс диапазона в порядке возрастания
+	 * @return Первый код диапазона
+	 * @throws IndexOutOfBoundsException Индекс >= количества диапазонов
+	 */
+	public int rangeFirst(int index) throws IndexOutOfBoundsException
+	{
+		return bounds[2 * Objects.checkIndex(index, rangeCount())];
+	}
+	
+	/**
+	 * Последний код диапазона (включительно)
+	 *
+	 * @param index Индекс диапазона в порядке возрастания
+	 * @return Последний код диапазона
+	 * @throws IndexOutOfBoundsException Индекс >= количества диапазонов
+	 */
+	public int rangeLast(int index) throws IndexOutOfBoundsException
+	{
+		return bounds[2 * Objects.checkIndex(index, rangeCount()) + 1] - 1;
+	}
+	
+	/**
+	 * Проверка на наличие кода символа в множестве за O(log количества диапазонов)
+	 *
+	 * @param codePoint Проверяемый код символа
+	 * @return true в случае присутствия кода в множестве, false иначе
+	 */
+	public boolean contains(int codePoint)
+	{
+		int index = Arrays.binarySearch(bounds, codePoint);
+		
+		return index >= 0 ? (index & 1) == 0 : (-index - 1 & 1) != 0;
+	}
+	
+	/**
+	 * Проверка на наличие всех кодов символов текста в множестве
+	 *
+	 * @param text Текст
+	 * @return true если каждый код символа text принадлежит множеству, false иначе
+	 */
+	public boolean containsAll(CharSequence text)
+	{
+		return text.codePoints().allMatch(this::contains);
+	}
+	
+	/**
+	 * Объединение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащее элементы обоих множеств
+	 */
+	public CodePointSet getUnion(CodePointSet other)
+	{
+		return merge(other, UNION);
+	}
+	
+	/**
+	 * Пересечение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество содержащее элементы, которые одновременно принадлежат обоим множествам
+	 */
+	public CodePointSet getIntersection(CodePointSet other)
+	{
+		return merge(other, INTERSECTION);
+	}
+	
+	/**
+	 * Разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащие элементы из текущего множества, которые не содержатся в other
+	 */
+	public CodePointSet getDifference(CodePointSet other)
+	{
+		return merge(other, DIFFERENCE);
+	}
+	
+	/**
+	 * Симметрическая разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество в котором находятся элементы только из одного множества
+	 */
+	public CodePointSet getSymmetricDifference(CodePointSet other)
+	{
+		return merge(other, SYMMETRIC_DIFFERENCE);
+	}
+	
+	/**
+	 * Дополнение до множества всех кодов символов
+	 *
+	 * @return Множество кодов, не принадлежащих текущему множеству
+	 */
+	public CodePointSet getComplement()
+	{
+		return ALL.merge(this, DIFFERENCE);
+	}
+	
+	/**
+	 * Коды символов множества
+	 *
+	 * @return Коды в порядке возрастания
+	 * @throws OutOfMemoryError Множество слишком велико для массива
+	 */
+	public int[] toArray()
+	{
+		int[] result = new int[cardinality()];
+		int length = 0;
+		
+		for (int i = 0; i < bounds.length; i += 2)
+		{
+			for (int codePoint = bounds[i]; codePoint < bounds[i + 1]; codePoint++)
+			{
+				result[length++] = codePoint;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Преобразование части множества из BMP в множество символов
+	 *
+	 * @return Множество символов в порядке возрастания кодов без символов вне BMP
+	 */
+	public CharSet toCharSet()
+	{
+		List<Character> result = new ArrayList<>();
+		
+		for (int i = 0; i < bounds.length && bounds[i] <= Character.MAX_VALUE; i += 2)
+		{
+			int end = Math.min(bounds[i + 1], Character.MAX_VALUE + 1);
+			
+			for (int codePoint = bounds[i]; codePoint < end; codePoint++)
+			{
+				result.add((char) codePoint);
+			}
+		}
+		
+		return CharSet.ofDistinct(result);
+	}
+	
+	/**
+	 * Представление множества в виде строки
+	 *
+	 * @return Множество в формате {U+0041-U+005A, U+1F600, ...} - диапазоны в порядке возрастания
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(2 + 8 * bounds.length);
+		
+		builder.append('{');
+		
+		for (int i = 0; i < bounds.length; i += 2)
+		{
+			if (i != 0)
+			{
+				builder.append(", ");
+			}
+			
+			builder.append(String.format("U+%04X", bounds[i]));
+			
+			if (bounds[i + 1] - 1 != bounds[i])
+			{
+				builder.append(String.format("-U+%04X", bounds[i + 1] - 1));
+			}
+		}
+		
+		builder.append('}');
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Сравнение множеств
+	 *
+	 * @param other Другое множество для сравнения
+	 * @return true в случае равенства множеств, false иначе
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
+		{
+			return false;
+		}
+		
+		return Arrays.equals(bounds, ((CodePointSet) other).bounds);
+	}
+	
+	/**
+	 * Хеш-код множества
+	 *
+	 * @return Хеш-код, зависящий только от элементов множества
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(bounds);
+	}
+	
+	/**
+	 * Слияние списков инверсий<br>
+	 * Перебираются все границы обоих множеств в порядке возрастания, принадлежность каждой части результату
+	 * определяется таблицей истинности operation по принадлежности первому и второму множествам
+	 */
+	private CodePointSet merge(CodePointSet other, int operation)
+	{
+		int[] first = bounds;
+		int[] second = other.bounds;
+		int[] result = new int[first.length + second.length];
+		int length = 0;
+		int i = 0;
+		int j = 0;
+		boolean inside = false;
+		
+		while (i < first.length || j < second.length)
+		{
+			int firstBound = i < first.length ? first[i] : Integer.MAX_VALUE;
+			int secondBound = j < second.length ? second[j] : Integer.MAX_VALUE;
+			int bound = Math.min(firstBound, secondBound);
+			
+			if (firstBound == bound)
+			{
+				i++;
+			}
+			
+			if (secondBound == bound)
+			{
+				j++;
+			}
+			
+			boolean matches = (operation >>> ((i & 1) << 1 | j & 1) & 1) != 0;
+			
+			if (matches != inside)
+			{
+				result[length++] = bound;
+				inside = matches;
+			}
+		}
+		
+		return create(result, length);
+	}
+	
+	private static CodePointSet create(int[] bounds, int length)
+	{
+		if (length == 0)
+		{
+			return EMPTY;
+		}
+		
+		return new CodePointSet(length == bounds.length ? bounds : Arrays.copyOf(bounds, length));
+	}
+	
+	private static int check(int codePoint) throws IllegalArgumentException
+	{
+		if (!Character.isValidCodePoint(codePoint))
+		{
+			throw new IllegalArgumentException(String.format("Неверный код символа: %X", codePoint));
+		}
+		
+		return codePoint;
+	}
+}
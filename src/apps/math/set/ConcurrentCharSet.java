@@ -0,0 +1,287 @@
+package apps.math.set;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс описывающий множество символов для одновременного использования из нескольких потоков<br>
+ * Множество хранится в битовой карте AtomicLongArray: add и remove изменяют слово через CAS без блокировок,
+ * contains читает одно слово. Итератор слабо согласован: он видит элементы,
+ * присутствовавшие на момент чтения соответствующего слова.<br>
+ * Для каждого слова ведутся собственные счётчики начатых и завершённых изменений, поэтому писатели
+ * разных слов не конкурируют за общий счётчик. snapshot возвращает согласованное состояние: копирование
+ * повторяется, пока во время него не было начато или не завершено ни одно изменение. После SNAPSHOT_RETRIES
+ * неудачных попыток snapshot ненадолго приостанавливает новых писателей, дожидается завершения начатых
+ * изменений и копирует карту, поэтому поток непрерывных изменений не может задержать его бесконечно
+ */
+public class ConcurrentCharSet implements Iterable<Character>
+{
+	private static final int SNAPSHOT_RETRIES = 64;
+	
+	private final AtomicLongArray words = new AtomicLongArray(CharBitmap.WORDS);
+	private final AtomicLongArray started = new AtomicLongArray(CharBitmap.WORDS);
+	private final AtomicLongArray finished = new AtomicLongArray(CharBitmap.WORDS);
+	private volatile boolean frozen;
+	
+	/**
+	 * Конструктор для перечисления элементов
+	 *
+	 * @param chars Элементы множества
+	 */
+	public ConcurrentCharSet(char... chars)
+	{
+		for (char character : chars)
+		{
+			add(character);
+		}
+	}
+	
+	/**
+	 * Создание множества из множества символов
+	 *
+	 * @param set Множество символов
+	 */
+	public ConcurrentCharSet(CharSet set)
+	{
+		for (int i = 0; i < set.cardinality(); i++)
+		{
+			add(set.get(i));
+		}
+	}
+	
+	/**
+	 * Проверка на наличие элемента в множестве
+	 *
+	 * @param element Проверяемый элемент
+	 * @return true в случае присутствия элемента в множестве, false иначе
+	 */
+	public boolean contains(char element)
+	{
+		return (words.getAcquire(element >>> 6) & 1L << element) != 0;
+	}
+	
+	/**
+	 * Добавление элемента в множество
+	 *
+	 * @param element Элемент для добавления
+	 * @return true если элемент добавлен, false если он уже присутствовал
+	 */
+	public boolean add(char element)
+	{
+		return update(element, true);
+	}
+	
+	/**
+	 * Удаление элемента из множества
+	 *
+	 * @param element Элемент для удаления
+	 * @return true если элемент удалён, false если он отсутствовал
+	 */
+	public boolean remove(char element)
+	{
+		return update(element, false);
+	}
+	
+	/**
+	 * Мощность множества<br>
+	 * При одновременных изменениях результат может не соответствовать ни одному моменту времени
+	 *
+	 * @return Количество элементов
+	 */
+	public int cardinality()
+	{
+		int result = 0;
+		
+		for (int i = 0; i < CharBitmap.WORDS; i++)
+		{
+			result += Long.bitCount(words.getAcquire(i));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Согласованный снимок множества
+	 *
+	 * @return Неизменяемая битовая карта, соответствующая одному моменту времени
+	 */
+	public CharBitmap snapshot()
+	{
+		long[] copy = new long[CharBitmap.WORDS];
+		long[] versions = new long[CharBitmap.WORDS];
+		
+		for (int attempt = 0; attempt < SNAPSHOT_RETRIES; attempt++)
+		{
+			if (tryCopy(copy, versions))
+			{
+				return new CharBitmap(copy, copy.length);
+			}
+			
+			Thread.onSpinWait();
+		}
+		
+		return frozenSnapshot(copy, versions);
+	}
+	
+	/**
+	 * Согласованный снимок множества в виде обычного множества символов
+	 *
+	 * @return Множество символов в порядке возрастания кодов
+	 */
+	public CharSet toCharSet()
+	{
+		return snapshot().toCharSet();
+	}
+	
+	/**
+	 * Слабо согласованный итератор по элементам в порядке возрастания кодов
+	 *
+	 * @return Итератор, не выбрасывающий ConcurrentModificationException
+	 */
+	@Override
+	public Iterator<Character> iterator()
+	{
+		return new Iterator<>()
+		{
+			private int index = -1;
+			private long word;
+			
+			@Override
+			public boolean hasNext()
+			{
+				while (word == 0)
+				{
+					if (++index >= CharBitmap.WORDS)
+					{
+						return false;
+					}
+					
+					word = words.getAcquire(index);
+				}
+				
+				return true;
+			}
+			
+			@Override
+			public Character next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				
+				char result = (char) (index << 6 | Long.numberOfTrailingZeros(word));
+				
+				word &= word - 1;
+				
+				return result;
+			}
+		};
+	}
+	
+	/**
+	 * Представление множества в виде строки
+	 *
+	 * @return Снимок множества в формате {a1, a2, ..., an}
+	 */
+	@Override
+	public String toString()
+	{
+		return snapshot().toString();
+	}
+	
+	/**
+	 * Двойной просмотр счётчиков: если ни одно слово не начинало и не завершало изменение между первым
+	 * и вторым просмотром, то скопированные слова одновременно присутствовали в карте
+	 */
+	private boolean tryCopy(long[] copy, long[] versions)
+	{
+		for (int i = 0; i < versions.length; i++)
+		{
+			versions[i] = finished.get(i);
+			
+			if (started.get(i) != versions[i])
+			{
+				return false;
+			}
+		}
+		
+		for (int i = 0; i < copy.length; i++)
+		{
+			copy[i] = words.get(i);
+		}
+		
+		for (int i = 0; i < versions.length; i++)
+		{
+			if (started.get(i) != versions[i])
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private synchronized CharBitmap frozenSnapshot(long[] copy, long[] versions)
+	{
+		frozen = true;
+		
+		try
+		{
+			// Новые писатели ждут снятия frozen, каждый начатый писатель изменяет счётчики не более одного раза,
+			// поэтому число повторов ограничено числом потоков
+			while (!tryCopy(copy, versions))
+			{
+				Thread.yield();
+			}
+			
+			return new CharBitmap(copy, copy.length);
+		}
+		finally
+		{
+			frozen = false;
+		}
+	}
+	
+	private boolean update(char element, boolean add)
+	{
+		int index = element >>> 6;
+		long bit = 1L << element;
+		
+		while (true)
+		{
+			long current = words.get(index);
+			
+			if (((current & bit) != 0) == add)
+			{
+				return false;
+			}
+			
+			// Счётчик увеличивается до проверки frozen: либо писатель увидит frozen, либо snapshot увидит
+			// начатое изменение и дождётся его завершения
+			started.incrementAndGet(index);
+			
+			if (frozen)
+			{
+				finished.incrementAndGet(index);
+				
+				while (frozen)
+				{
+					Thread.yield();
+				}
+				
+				continue;
+			}
+			
+			boolean updated = words.compareAndSet(index, current, add ? current | bit : current & ~bit);
+			
+			finished.incrementAndGet(index);
+			
+			if (updated)
+			{
+				return true;
+			}
+		}
+	}
+}
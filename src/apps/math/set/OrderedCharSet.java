@@ -0,0 +1,485 @@
+package apps.math.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс описывающий множество символов, сохраняющее порядок добавления<br>
+ * Элементы хранятся в массиве char[] в порядке добавления, а позиция каждого символа -
+ * в таблице прямой адресации из 256 страниц по 256 позиций, создаваемых по мере необходимости.
+ * Поэтому contains, get, add и set без совпадения с другим элементом выполняются за O(1) без упаковки в Character.<br>
+ * Порядок элементов после set совпадает с CharSet: если новый элемент уже присутствует в множестве,
+ * повторное вхождение удаляется со сдвигом хвоста массива
+ */
+public class OrderedCharSet implements Cloneable
+{
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	
+	private char[] order;
+	private int size;
+	private int[][] positions;
+	
+	/**
+	 * Конструктор для перечисления элементов
+	 *
+	 * @param chars Элементы множества
+	 */
+	public OrderedCharSet(char... chars)
+	{
+		order = new char[Math.max(chars.length, 8)];
+		positions = new int[PAGE_SIZE][];
+		
+		for (char character : chars)
+		{
+			add(character);
+		}
+	}
+	
+	/**
+	 * Копирующий конструктор
+	 *
+	 * @param other Другое множество
+	 */
+	public OrderedCharSet(OrderedCharSet other)
+	{
+		order = Arrays.copyOf(other.order, other.order.length);
+		size = other.size;
+		positions = new int[PAGE_SIZE][];
+		
+		for (int i = 0; i < PAGE_SIZE; i++)
+		{
+			if (other.positions[i] != null)
+			{
+				positions[i] = Arrays.copyOf(other.positions[i], PAGE_SIZE);
+			}
+		}
+	}
+	
+	/**
+	 * Создание множества из множества символов с сохранением порядка элементов
+	 *
+	 * @param set Множество символов
+	 */
+	public OrderedCharSet(CharSet set)
+	{
+		this(set.getChars());
+	}
+	
+	/**
+	 * Создание множества из List
+	 *
+	 * @param chars Элементы множества
+	 */
+	public OrderedCharSet(List<Character> chars)
+	{
+		order = new char[Math.max(chars.size(), 8)];
+		positions = new int[PAGE_SIZE][];
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			add(chars.get(i));
+		}
+	}
+	
+	/**
+	 * Мощность множества
+	 *
+	 * @return Мощность множества
+	 */
+	public int cardinality()
+	{
+		return size;
+	}
+	
+	/**
+	 * Проверка на наличие элемента в множестве
+	 *
+	 * @param element Проверяемый элемент
+	 * @return true в случае присутствия элемента в множестве, false иначе
+	 */
+	public boolean contains(char element)
+	{
+		return position(element) >= 0;
+	}
+	
+	/**
+	 * Индекс элемента в множестве
+	 *
+	 * @param element Искомый элемент
+	 * @return Индекс элемента, -1 если элемент отсутствует
+	 */
+	public int indexOf(char element)
+	{
+		return position(element);
+	}
+	
+	/**
+	 * Добавление элемента в множество<br>
+	 * В множестве один элемент может содержаться только 1 раз
+	 *
+	 * @param element Элемент для добавления
+	 */
+	public void add(char element)
+	{
+		if (contains(element))
+		{
+			return;
+		}
+		
+		if (size == order.length)
+		{
+			order = Arrays.copyOf(order, size * 2);
+		}
+		
+		order[size] = element;
+		setPosition(element, size);
+		size++;
+	}
+	
+	/**
+	 * Удаление элемента из множества со сдвигом следующих элементов
+	 *
+	 * @param element Элемент для удаления
+	 * @return true если элемент присутствовал в множестве, false иначе
+	 */
+	public boolean remove(char element)
+	{
+		int index = position(element);
+		
+		if (index < 0)
+		{
+			return false;
+		}
+		
+		removeAt(index);
+		
+		return true;
+	}
+	
+	/**
+	 * Сложение множеств
+	 *
+	 * @param other Другое множество
+	 */
+	public void add(OrderedCharSet other)
+	{
+		for (int i = 0; i < other.size; i++)
+		{
+			add(other.order[i]);
+		}
+	}
+	
+	/**
+	 * Вычитание множеств
+	 *
+	 * @param other Другое множество
+	 */
+	public void subtract(OrderedCharSet other)
+	{
+		retain(other, false);
+	}
+	
+	/**
+	 * Умножение множеств
+	 *
+	 * @param other Другое множество
+	 */
+	public void multiply(OrderedCharSet other)
+	{
+		retain(other, true);
+	}
+	
+	/**
+	 * Объединения множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащее элементы обоих множеств
+	 */
+	public OrderedCharSet getUnion(OrderedCharSet other)
+	{
+		OrderedCharSet result = new OrderedCharSet(this);
+		
+		result.add(other);
+		
+		return result;
+	}
+	
+	/**
+	 * Пересечение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество содержащее элементы, которые одновременно принадлежат обоим множествам
+	 */
+	public OrderedCharSet getIntersection(OrderedCharSet other)
+	{
+		OrderedCharSet result = new OrderedCharSet(this);
+		
+		result.multiply(other);
+		
+		return result;
+	}
+	
+	/**
+	 * Разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащие элементы из текущего множества, которые не содержатся в other
+	 */
+	public OrderedCharSet getDifference(OrderedCharSet other)
+	{
+		OrderedCharSet result = new OrderedCharSet(this);
+		
+		result.subtract(other);
+		
+		return result;
+	}
+	
+	/**
+	 * Получение элемента множества по индексу
+	 *
+	 * @param index Индекс элемента в множестве
+	 * @return Элемент множества
+	 * @throws IndexOutOfBoundsException Индекс >= мощности множества
+	 */
+	public char get(int index) throws IndexOutOfBoundsException
+	{
+		return order[Objects.checkIndex(index, size)];
+	}
+	
+	/**
+	 * Переприсваивание элемента множества по индексу<br>
+	 * Если element уже содержится в множестве, остаётся его первое вхождение, как в CharSet.set
+	 *
+	 * @param index   Индекс элемента в множестве для замены
+	 * @param element Новый элемент множества
+	 * @throws IndexOutOfBoundsException Индекс >= мощности множества
+	 */
+	public void set(int index, char element) throws IndexOutOfBoundsException
+	{
+		char previous = order[Objects.checkIndex(index, size)];
+		
+		if (previous == element)
+		{
+			return;
+		}
+		
+		int existing = position(element);
+		
+		if (existing < 0)
+		{
+			clearPosition(previous);
+			
+			order[index] = element;
+			setPosition(element, index);
+		}
+		else if (existing < index)
+		{
+			removeAt(index);
+		}
+		else
+		{
+			removeAt(existing);
+			clearPosition(previous);
+			
+			order[index] = element;
+			setPosition(element, index);
+		}
+	}
+	
+	/**
+	 * Добавление элемента в множество
+	 *
+	 * @param element Элемент для добавления
+	 * @return Текущее множество
+	 */
+	public OrderedCharSet append(char element)
+	{
+		this.add(element);
+		
+		return this;
+	}
+	
+	/**
+	 * Элементы множества
+	 *
+	 * @return Новый список элементов в порядке добавления
+	 */
+	public List<Character> getChars()
+	{
+		List<Character> result = new ArrayList<>(size);
+		
+		for (int i = 0; i < size; i++)
+		{
+			result.add(order[i]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Преобразование в множество символов
+	 *
+	 * @return Множество символов с тем же порядком элементов
+	 */
+	public CharSet toCharSet()
+	{
+		return CharSet.ofDistinct(getChars());
+	}
+	
+	/**
+	 * Клонирование множества
+	 *
+	 * @return Новое множество идентичное данному
+	 */
+	@Override
+	public OrderedCharSet clone()
+	{
+		return new OrderedCharSet(this);
+	}
+	
+	/**
+	 * Представление множества в виде строки
+	 *
+	 * @return Множество в формате {a1, a2, ..., an}, где a1, a2, ..., an - элементы множества
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder(2 + 3 * size);
+		
+		builder.append('{');
+		
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(order[i]);
+			
+			if (i + 1 != size)
+			{
+				builder.append(", ");
+			}
+		}
+		
+		builder.append('}');
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Сравнение множеств без учёта порядка элементов
+	 *
+	 * @param other Другое множество для сравнения
+	 * @return true в случае равенства множеств, false иначе
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
+		{
+			return false;
+		}
+		
+		OrderedCharSet ref = (OrderedCharSet) other;
+		
+		if (size != ref.size)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < size; i++)
+		{
+			if (!ref.contains(order[i]))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Хеш-код множества
+	 *
+	 * @return Хеш-код, не зависящий от порядка элементов
+	 */
+	@Override
+	public int hashCode()
+	{
+		int result = 0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			result += CharSet.hashElement(order[i]);
+		}
+		
+		return result;
+	}
+	
+	private void retain(OrderedCharSet other, boolean present)
+	{
+		int length = 0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			char character = order[i];
+			
+			if (other.contains(character) == present)
+			{
+				order[length] = character;
+				setPosition(character, length);
+				length++;
+			}
+			else
+			{
+				clearPosition(character);
+			}
+		}
+		
+		size = length;
+	}
+	
+	private void removeAt(int index)
+	{
+		clearPosition(order[index]);
+		
+		System.arraycopy(order, index + 1, order, index, size - index - 1);
+		
+		size--;
+		
+		for (int i = index; i < size; i++)
+		{
+			setPosition(order[i], i);
+		}
+	}
+	
+	private int position(char element)
+	{
+		int[] page = positions[element >>> PAGE_BITS];
+		
+		return page == null ? -1 : page[element & PAGE_SIZE - 1] - 1;
+	}
+	
+	private void setPosition(char element, int index)
+	{
+		int[] page = positions[element >>> PAGE_BITS];
+		
+		if (page == null)
+		{
+			page = positions[element >>> PAGE_BITS] = new int[PAGE_SIZE];
+		}
+		
+		page[element & PAGE_SIZE - 1] = index + 1;
+	}
+	
+	private void clearPosition(char element)
+	{
+		positions[element >>> PAGE_BITS][element & PAGE_SIZE - 1] = 0;
+	}
+}
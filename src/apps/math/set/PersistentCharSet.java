@@ -0,0 +1,469 @@
+package apps.math.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс описывающий неизменяемое множество символов со структурным разделением<br>
+ * Множество хранится в виде двухуровневого битового дерева: старшие 5 бит символа выбирают узел,
+ * следующие 5 бит - слово узла, младшие 6 бит - бит слова. Изменение копирует только путь
+ * от корня до слова (32 ссылки и 32 слова), остальные узлы разделяются между версиями.<br>
+ * Все поля неизменяемы после создания, поэтому версию можно передавать между потоками
+ * без блокировок, например через AtomicReference
+ */
+public final class PersistentCharSet
+{
+	private static final int FANOUT = 32;
+	private static final PersistentCharSet EMPTY = new PersistentCharSet(new long[FANOUT][], 0);
+	
+	private final long[][] nodes;
+	private final int cardinality;
+	
+	/**
+	 * Пустое множество
+	 *
+	 * @return Пустое множество
+	 */
+	public static PersistentCharSet empty()
+	{
+		return EMPTY;
+	}
+	
+	/**
+	 * Создание множества из перечисления элементов
+	 *
+	 * @param chars Элементы множества
+	 * @return Множество из chars
+	 */
+	public static PersistentCharSet of(char... chars)
+	{
+		long[][] nodes = new long[FANOUT][];
+		int cardinality = 0;
+		
+		for (char character : chars)
+		{
+			long[] node = nodes[character >>> 11];
+			
+			if (node == null)
+			{
+				node = nodes[character >>> 11] = new long[FANOUT];
+			}
+			
+			long bit = 1L << character;
+			int index = character >>> 6 & FANOUT - 1;
+			
+			if ((node[index] & bit) == 0)
+			{
+				node[index] |= bit;
+				cardinality++;
+			}
+		}
+		
+		return new PersistentCharSet(nodes, cardinality);
+	}
+	
+	/**
+	 * Создание множества из множества символов
+	 *
+	 * @param set Множество символов
+	 * @return Неизменяемое множество с теми же элементами
+	 */
+	public static PersistentCharSet of(CharSet set)
+	{
+		List<Character> chars = set.getChars();
+		char[] elements = new char[chars.size()];
+		
+		for (int i = 0; i < elements.length; i++)
+		{
+			elements[i] = chars.get(i);
+		}
+		
+		return of(elements);
+	}
+	
+	private PersistentCharSet(long[][] nodes, int cardinality)
+	{
+		this.nodes = nodes;
+		this.cardinality = cardinality;
+	}
+	
+	/**
+	 * Мощность множества
+	 *
+	 * @return Мощность множества
+	 */
+	public int cardinality()
+	{
+		return cardinality;
+	}
+	
+	/**
+	 * Проверка на наличие элемента в множестве
+	 *
+	 * @param element Проверяемый элемент
+	 * @return true в случае присутствия элемента в множестве, false иначе
+	 */
+	public boolean contains(char element)
+	{
+		long[] node = nodes[element >>> 11];
+		
+		return node != null && (node[element >>> 6 & FANOUT - 1] & 1L << element) != 0;
+	}
+	
+	/**
+	 * Множество с добавленным элементом
+	 *
+	 * @param element Элемент для добавления
+	 * @return Новая версия множества, либо текущая, если элемент уже присутствует
+	 */
+	public PersistentCharSet with(char element)
+	{
+		if (contains(element))
+		{
+			return this;
+		}
+		
+		long[][] copy = nodes.clone();
+		long[] node = nodes[element >>> 11];
+		
+		node = node == null ? new long[FANOUT] : node.clone();
+		node[element >>> 6 & FANOUT - 1] |= 1L << element;
+		copy[element >>> 11] = node;
+		
+		return new PersistentCharSet(copy, cardinality + 1);
+	}
+	
+	/**
+	 * Множество без заданного элемента
+	 *
+	 * @param element Элемент для удаления
+	 * @return Новая версия множества, либо текущая, если элемент отсутствует
+	 */
+	public PersistentCharSet without(char element)
+	{
+		if (!contains(element))
+		{
+			return this;
+		}
+		
+		long[][] copy = nodes.clone();
+		long[] node = nodes[element >>> 11].clone();
+		
+		node[element >>> 6 & FANOUT - 1] &= ~(1L << element);
+		copy[element >>> 11] = isEmpty(node) ? null : node;
+		
+		return new PersistentCharSet(copy, cardinality - 1);
+	}
+	
+	/**
+	 * Объединение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащее элементы обоих множеств
+	 */
+	public PersistentCharSet getUnion(PersistentCharSet other)
+	{
+		long[][] result = new long[FANOUT][];
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] first = nodes[i];
+			long[] second = other.nodes[i];
+			
+			if (first == second || second == null)
+			{
+				result[i] = first;
+			}
+			else if (first == null)
+			{
+				result[i] = second;
+			}
+			else
+			{
+				long[] node = new long[FANOUT];
+				
+				for (int j = 0; j < FANOUT; j++)
+				{
+					node[j] = first[j] | second[j];
+				}
+				
+				result[i] = node;
+			}
+		}
+		
+		return create(result);
+	}
+	
+	/**
+	 * Пересечение множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество содержащее элементы, которые одновременно принадлежат обоим множествам
+	 */
+	public PersistentCharSet getIntersection(PersistentCharSet other)
+	{
+		long[][] result = new long[FANOUT][];
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] first = nodes[i];
+			long[] second = other.nodes[i];
+			
+			if (first == second)
+			{
+				result[i] = first;
+			}
+			else if (first != null && second != null)
+			{
+				long[] node = new long[FANOUT];
+				
+				for (int j = 0; j < FANOUT; j++)
+				{
+					node[j] = first[j] & second[j];
+				}
+				
+				result[i] = isEmpty(node) ? null : node;
+			}
+		}
+		
+		return create(result);
+	}
+	
+	/**
+	 * Разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество, содержащие элементы из текущего множества, которые не содержатся в other
+	 */
+	public PersistentCharSet getDifference(PersistentCharSet other)
+	{
+		long[][] result = new long[FANOUT][];
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] first = nodes[i];
+			long[] second = other.nodes[i];
+			
+			if (second == null)
+			{
+				result[i] = first;
+			}
+			else if (first != null && first != second)
+			{
+				long[] node = new long[FANOUT];
+				
+				for (int j = 0; j < FANOUT; j++)
+				{
+					node[j] = first[j] & ~second[j];
+				}
+				
+				result[i] = isEmpty(node) ? null : node;
+			}
+		}
+		
+		return create(result);
+	}
+	
+	/**
+	 * Симметрическая разность множеств
+	 *
+	 * @param other Другое множество
+	 * @return Множество в котором находятся элементы только из одного множества
+	 */
+	public PersistentCharSet getSymmetricDifference(PersistentCharSet other)
+	{
+		long[][] result = new long[FANOUT][];
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] first = nodes[i];
+			long[] second = other.nodes[i];
+			
+			if (first == second)
+			{
+				continue;
+			}
+			
+			if (first == null || second == null)
+			{
+				result[i] = first == null ? second : first;
+			}
+			else
+			{
+				long[] node = new long[FANOUT];
+				
+				for (int j = 0; j < FANOUT; j++)
+				{
+					node[j] = first[j] ^ second[j];
+				}
+				
+				result[i] = isEmpty(node) ? null : node;
+			}
+		}
+		
+		return create(result);
+	}
+	
+	/**
+	 * Элементы множества
+	 *
+	 * @return Элементы в порядке возрастания кодов
+	 */
+	public char[] toCharArray()
+	{
+		char[] result = new char[cardinality];
+		int length = 0;
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] node = nodes[i];
+			
+			if (node == null)
+			{
+				continue;
+			}
+			
+			for (int j = 0; j < FANOUT; j++)
+			{
+				long word = node[j];
+				
+				while (word != 0)
+				{
+					result[length++] = (char) (i << 11 | j << 6 | Long.numberOfTrailingZeros(word));
+					
+					word &= word - 1;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Преобразование в изменяемое множество символов
+	 *
+	 * @return Множество символов в порядке возрастания кодов
+	 */
+	public CharSet toCharSet()
+	{
+		char[] chars = toCharArray();
+		List<Character> result = new ArrayList<>(chars.length);
+		
+		for (char character : chars)
+		{
+			result.add(character);
+		}
+		
+		return CharSet.ofDistinct(result);
+	}
+	
+	/**
+	 * Представление множества в виде строки
+	 *
+	 * @return Множество в формате {a1, a2, ..., an}, где a1 &lt; a2 &lt; ... &lt; an - элементы множества
+	 */
+	@Override
+	public String toString()
+	{
+		return toCharSet().toString();
+	}
+	
+	/**
+	 * Сравнение множеств
+	 *
+	 * @param other Другое множество для сравнения
+	 * @return true в случае равенства множеств, false иначе
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		
+		if (other == null || getClass() != other.getClass())
+		{
+			return false;
+		}
+		
+		PersistentCharSet ref = (PersistentCharSet) other;
+		
+		if (cardinality != ref.cardinality)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] first = nodes[i];
+			long[] second = ref.nodes[i];
+			
+			if (first != second && (first == null || second == null || !Arrays.equals(first, second)))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Хеш-код множества<br>
+	 * Совпадает с хеш-кодом CharBitmap с теми же элементами
+	 *
+	 * @return Хеш-код, зависящий только от элементов множества
+	 */
+	@Override
+	public int hashCode()
+	{
+		long result = 0;
+		
+		for (int i = 0; i < FANOUT; i++)
+		{
+			long[] node = nodes[i];
+			
+			if (node != null)
+			{
+				for (int j = 0; j < FANOUT; j++)
+				{
+					result ^= CharBitmap.hashWord(i * FANOUT + j, node[j]);
+				}
+			}
+		}
+		
+		return (int) (result ^ result >>> 32);
+	}
+	
+	private static PersistentCharSet create(long[][] nodes)
+	{
+		int cardinality = 0;
+		
+		for (long[] node : nodes)
+		{
+			if (node != null)
+			{
+				for (long word : node)
+				{
+					cardinality += Long.bitCount(word);
+				}
+			}
+		}
+		
+		return new PersistentCharSet(nodes, cardinality);
+	}
+	
+	private static boolean isEmpty(long[] node)
+	{
+		for (long word : node)
+		{
+			if (word != 0)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
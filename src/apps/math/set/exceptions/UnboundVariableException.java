@@ -0,0 +1,31 @@
+package apps.math.set.exceptions;
+
+/**
+ * Класс описывающий исключение связанное с отсутствием значения переменной выражения над множествами
+ */
+public class UnboundVariableException extends WrongExpressionFormatException
+{
+	private final String name;
+	
+	/**
+	 * Конструктор, создающий сообщение с именем переменной для Exception
+	 *
+	 * @param name Имя переменной без значения
+	 */
+	public UnboundVariableException(String name)
+	{
+		super("Не задано значение переменной " + name);
+		
+		this.name = name;
+	}
+	
+	/**
+	 * Getter для name
+	 *
+	 * @return Имя переменной без значения
+	 */
+	public String getName()
+	{
+		return name;
+	}
+}
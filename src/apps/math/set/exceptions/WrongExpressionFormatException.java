@@ -0,0 +1,29 @@
+package apps.math.set.exceptions;
+
+/**
+ * Класс описывающий исключение связанное с неверным форматом выражения над множествами
+ */
+public class WrongExpressionFormatException extends Exception
+{
+	/**
+	 * Конструктор, создающий сообщение с описанием ошибки для Exception
+	 *
+	 * @param expression Выражение с ошибкой
+	 * @param position   Позиция ошибки в выражении
+	 * @param reason     Описание ошибки
+	 */
+	public WrongExpressionFormatException(String expression, int position, String reason)
+	{
+		super("Неверный формат выражения: " + reason + " в позиции " + position + "\n" + expression);
+	}
+	
+	/**
+	 * Конструктор с готовым сообщением для наследников
+	 *
+	 * @param message Сообщение об ошибке
+	 */
+	protected WrongExpressionFormatException(String message)
+	{
+		super(message);
+	}
+}
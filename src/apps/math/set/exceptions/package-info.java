@@ -0,0 +1,4 @@
+/**
+ * Пакет с исключениями для множеств символов
+ */
+package apps.math.set.exceptions;
\ No newline at end of file
@@ -0,0 +1,56 @@
+package apps.math.vector;
+
+import apps.math.vector.exceptions.DifferentDimensionException;
+
+/**
+ * Интерфейс описывающий математический вектор независимо от способа хранения координат<br>
+ * Реализации: Vector - плотное хранение всех координат, SparseVector - хранение только ненулевых координат
+ */
+public interface MathVector
+{
+	/**
+	 * Размерность вектора
+	 *
+	 * @return Количество координат вектора
+	 */
+	int getDimension();
+	
+	/**
+	 * Получение координаты вектора
+	 *
+	 * @param index Индекс координаты
+	 * @return Значение координаты
+	 * @throws IndexOutOfBoundsException Индекс >= размерности вектора
+	 */
+	double get(int index) throws IndexOutOfBoundsException;
+	
+	/**
+	 * Количество ненулевых координат
+	 *
+	 * @return Количество ненулевых координат
+	 */
+	int countNonZero();
+	
+	/**
+	 * Вычисление модуля вектора
+	 *
+	 * @return Модуль вектора
+	 */
+	double calculateModule();
+	
+	/**
+	 * Вычисления скалярного произведения векторов
+	 *
+	 * @param other Второй вектор в скалярном произведении
+	 * @return Результат скалярного произведения
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	double calculateScalarProduct(MathVector other) throws DifferentDimensionException;
+	
+	/**
+	 * Координаты вектора в виде массива
+	 *
+	 * @return Новый массив всех координат
+	 */
+	double[] toArray();
+}
@@ -0,0 +1,47 @@
+package apps.math.vector;
+
+/**
+ * Перечисление способов суммирования при вычислении модуля и скалярного произведения векторов<br>
+ * В оценках погрешности: n - размерность, u = 2^-53 - единица округления double,
+ * S = Σ|x_i * y_i| (для модуля Σx_i^2), γ_n = n * u / (1 - n * u).
+ * Все способы, включая PARALLEL, дают одинаковый результат при повторных вызовах с одинаковыми данными
+ */
+public enum ReductionMode
+{
+	/**
+	 * Последовательное суммирование одним накопителем<br>
+	 * Погрешность суммы не больше γ_n * S
+	 */
+	SEQUENTIAL,
+	
+	/**
+	 * Суммирование четырьмя независимыми накопителями, которые складываются в конце<br>
+	 * Сложения разных накопителей не зависят друг от друга и выполняются процессором одновременно.
+	 * Погрешность суммы не больше γ_(n/4 + 2) * S
+	 */
+	MULTI_ACCUMULATOR,
+	
+	/**
+	 * Компенсированное суммирование Ноймайера, ошибка округления произведения учитывается через Math.fma<br>
+	 * Результат как при вычислении с удвоенной точностью и одном округлении:
+	 * погрешность не больше u * |результат| + γ_n^2 * S
+	 */
+	COMPENSATED,
+	
+	/**
+	 * Суммирование с масштабированием, устойчивое к переполнению и исчезновению порядка<br>
+	 * Модуль вычисляется как в hypot/LAPACK dnrm2: сумма квадратов хранится относительно текущего максимума |x_i|.
+	 * Скалярное произведение вычисляется для векторов, умноженных на точные степени двойки.
+	 * Погрешность не больше γ_(n + 2) * S, промежуточные значения не переполняются, пока не переполняется результат
+	 */
+	SCALED,
+	
+	/**
+	 * Параллельное суммирование в ForkJoinPool.commonPool()<br>
+	 * Вектор делится на части фиксированной длины независимо от количества потоков, каждая часть
+	 * суммируется компенсированно, частичные суммы складываются компенсированно в порядке частей.
+	 * Поэтому результат не зависит от количества потоков, а погрешность как у COMPENSATED.
+	 * Выгодно для векторов длиной от сотен тысяч координат
+	 */
+	PARALLEL
+}
@@ -0,0 +1,256 @@
+package apps.math.vector;
+
+import java.util.stream.IntStream;
+
+/**
+ * Класс с реализациями способов суммирования ReductionMode для массивов координат
+ */
+final class Reductions
+{
+	private static final int CHUNK = 1 << 16;
+	
+	private Reductions()
+	{
+	}
+	
+	/**
+	 * Модуль вектора
+	 *
+	 * @param x    Координаты вектора
+	 * @param mode Способ суммирования
+	 * @return Корень из суммы квадратов координат
+	 */
+	static double norm(double[] x, ReductionMode mode)
+	{
+		if (mode == ReductionMode.SCALED)
+		{
+			return scaledNorm(x);
+		}
+		
+		return Math.sqrt(dot(x, x, mode));
+	}
+	
+	/**
+	 * Скалярное произведение массивов одинаковой длины
+	 *
+	 * @param x    Первый массив
+	 * @param y    Второй массив
+	 * @param mode Способ суммирования
+	 * @return Сумма произведений x_i * y_i
+	 */
+	static double dot(double[] x, double[] y, ReductionMode mode)
+	{
+		switch (mode)
+		{
+			case SEQUENTIAL:
+				return sequential(x, y, 0, x.length);
+			case MULTI_ACCUMULATOR:
+				return multiAccumulator(x, y, 0, x.length);
+			case COMPENSATED:
+				return compensated(x, y, 0, x.length);
+			case SCALED:
+				return scaledDot(x, y);
+			default:
+				return parallel(x, y);
+		}
+	}
+	
+	private static double sequential(double[] x, double[] y, int from, int to)
+	{
+		double result = 0.0;
+		
+		for (int i = from; i < to; i++)
+		{
+			result += x[i] * y[i];
+		}
+		
+		return result;
+	}
+	
+	private static double multiAccumulator(double[] x, double[] y, int from, int to)
+	{
+		double first = 0.0;
+		double second = 0.0;
+		double third = 0.0;
+		double fourth = 0.0;
+		int i = from;
+		
+		for (; i + 3 < to; i += 4)
+		{
+			first += x[i] * y[i];
+			second += x[i + 1] * y[i + 1];
+			third += x[i + 2] * y[i + 2];
+			fourth += x[i + 3] * y[i + 3];
+		}
+		
+		for (; i < to; i++)
+		{
+			first += x[i] * y[i];
+		}
+		
+		return (first + second) + (third + fourth);
+	}
+	
+	private static double compensated(double[] x, double[] y, int from, int to)
+	{
+		double[] parts = compensatedParts(x, y, from, to);
+		
+		return parts[0] + parts[1];
+	}
+	
+	/**
+	 * Сумма Ноймайера: s - сумма, c - накопленные ошибки округления сложений и умножений
+	 *
+	 * @return Массив {s, c}
+	 */
+	private static double[] compensatedParts(double[] x, double[] y, int from, int to)
+	{
+		double sum = 0.0;
+		double correction = 0.0;
+		
+		for (int i = from; i < to; i++)
+		{
+			double product = x[i] * y[i];
+			double next = sum + product;
+			
+			correction += Math.fma(x[i], y[i], -product);
+			
+			if (Math.abs(sum) >= Math.abs(product))
+			{
+				correction += (sum - next) + product;
+			}
+			else
+			{
+				correction += (product - next) + sum;
+			}
+			
+			sum = next;
+		}
+		
+		return new double[] {sum, correction};
+	}
+	
+	private static double parallel(double[] x, double[] y)
+	{
+		int chunks = (x.length + CHUNK - 1) / CHUNK;
+		double[][] parts = new double[chunks][];
+		IntStream range = IntStream.range(0, chunks);
+		
+		if (chunks > 1)
+		{
+			range = range.parallel();
+		}
+		
+		range.forEach(chunk -> parts[chunk] = compensatedParts(x, y, chunk * CHUNK, Math.min(x.length, (chunk + 1) * CHUNK)));
+		
+		double sum = 0.0;
+		double correction = 0.0;
+		
+		for (double[] part : parts)
+		{
+			double next = sum + part[0];
+			
+			if (Math.abs(sum) >= Math.abs(part[0]))
+			{
+				correction += (sum - next) + part[0];
+			}
+			else
+			{
+				correction += (part[0] - next) + sum;
+			}
+			
+			sum = next;
+			correction += part[1];
+		}
+		
+		return sum + correction;
+	}
+	
+	/**
+	 * Модуль по схеме dnrm2: scale - максимум |x_i| среди просмотренных, sum - сумма (x_i / scale)^2<br>
+	 * Бесконечная координата даёт +Inf, как Math.hypot, в том числе при NaN в других координатах:
+	 * масштабирование дало бы Inf / Inf = NaN
+	 */
+	private static double scaledNorm(double[] x)
+	{
+		double scale = 0.0;
+		double sum = 1.0;
+		
+		for (double coordinate : x)
+		{
+			if (Double.isInfinite(coordinate))
+			{
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		
+		for (double coordinate : x)
+		{
+			if (coordinate != 0.0)
+			{
+				double absolute = Math.abs(coordinate);
+				
+				if (scale < absolute)
+				{
+					double ratio = scale / absolute;
+					
+					sum = 1.0 + sum * ratio * ratio;
+					scale = absolute;
+				}
+				else
+				{
+					double ratio = absolute / scale;
+					
+					sum += ratio * ratio;
+				}
+			}
+		}
+		
+		return scale * Math.sqrt(sum);
+	}
+	
+	/**
+	 * Скалярное произведение массивов, умноженных на 2^-e, где 2^e - порядок максимума |x_i| (|y_i|)<br>
+	 * Умножение на степень двойки точно, пока результат остаётся нормализованным числом. Элементы, которые
+	 * после масштабирования становятся субнормальными (меньше максимума более чем в 2^1022 раз), теряют младшие биты
+	 */
+	private static double scaledDot(double[] x, double[] y)
+	{
+		int first = exponent(x);
+		int second = exponent(y);
+		
+		if (first == Integer.MIN_VALUE || second == Integer.MIN_VALUE)
+		{
+			return sequential(x, y, 0, x.length);
+		}
+		
+		double result = 0.0;
+		
+		for (int i = 0; i < x.length; i++)
+		{
+			result += Math.scalb(x[i], -first) * Math.scalb(y[i], -second);
+		}
+		
+		return Math.scalb(result, first + second);
+	}
+	
+	/**
+	 * Порядок максимума |x_i|, Integer.MIN_VALUE для нулевого массива или массива с бесконечностями и NaN
+	 */
+	private static int exponent(double[] x)
+	{
+		double maximum = 0.0;
+		
+		for (double coordinate : x)
+		{
+			maximum = Math.max(maximum, Math.abs(coordinate));
+		}
+		
+		if (maximum == 0.0 || !Double.isFinite(maximum))
+		{
+			return Integer.MIN_VALUE;
+		}
+		
+		return Math.getExponent(maximum);
+	}
+}
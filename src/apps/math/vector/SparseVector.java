@@ -0,0 +1,650 @@
+package apps.math.vector;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import apps.math.vector.exceptions.DifferentDimensionException;
+
+/**
+ * Класс описывающий разреженный математический вектор<br>
+ * Хранятся только ненулевые координаты: отсортированный массив индексов и массив значений.
+ * Скалярное произведение двух разреженных векторов выполняется слиянием индексов,
+ * с плотным вектором - выборкой только по ненулевым индексам.<br>
+ * Сложение и вычитание возвращают плотный Vector, если доля ненулевых координат результата
+ * превышает DENSE_FILL: на такой заполненности плотное хранение занимает меньше памяти и быстрее обрабатывается
+ */
+public class SparseVector implements MathVector, Cloneable
+{
+	/**
+	 * Доля ненулевых координат, выше которой результат сложения и вычитания хранится плотно
+	 */
+	public static final double DENSE_FILL = 0.3;
+	
+	private final int dimension;
+	private int[] indices;
+	private double[] values;
+	private int size;
+	
+	/**
+	 * Статическая версия сложения векторов
+	 *
+	 * @param first  Первый вектор
+	 * @param second Второй вектор
+	 * @return Новый вектор, являющийся сложением first и second, плотный при заполненности больше DENSE_FILL
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public static MathVector add(SparseVector first, MathVector second) throws DifferentDimensionException
+	{
+		return combine(first, second, 1.0);
+	}
+	
+	/**
+	 * Статическая версия вычитания векторов
+	 *
+	 * @param first  Первый вектор
+	 * @param second Второй вектор
+	 * @return Новый вектор, являющийся вычитанием second из first, плотный при заполненности больше DENSE_FILL
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public static MathVector subtract(SparseVector first, MathVector second) throws DifferentDimensionException
+	{
+		return combine(first, second, -1.0);
+	}
+	
+	/**
+	 * Создание разреженного вектора из плотного
+	 *
+	 * @param vector Плотный вектор
+	 * @return Разреженный вектор с теми же координатами
+	 */
+	public static SparseVector of(Vector vector)
+	{
+		return of(vector.getCoordinates());
+	}
+	
+	/**
+	 * Создание разреженного вектора из всех координат
+	 *
+	 * @param coordinates Координаты вектора
+	 * @return Разреженный вектор с теми же координатами
+	 */
+	public static SparseVector of(double... coordinates)
+	{
+		SparseVector result = new SparseVector(coordinates.length);
+		int count = 0;
+		
+		for (double coordinate : coordinates)
+		{
+			if (coordinate != 0.0)
+			{
+				count++;
+			}
+		}
+		
+		result.indices = new int[count];
+		result.values = new double[count];
+		
+		for (int i = 0; i < coordinates.length; i++)
+		{
+			if (coordinates[i] != 0.0)
+			{
+				result.indices[result.size] = i;
+				result.values[result.size++] = coordinates[i];
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Конструктор нулевого вектора
+	 *
+	 * @param dimension Размерность вектора
+	 */
+	public SparseVector(int dimension)
+	{
+		this.dimension = dimension;
+		indices = new int[0];
+		values = new double[0];
+	}
+	
+	/**
+	 * Конструктор по ненулевым координатам<br>
+	 * Индексы могут идти в любом порядке, значения повторяющихся индексов складываются, нули не хранятся
+	 *
+	 * @param dimension Размерность вектора
+	 * @param indices   Индексы координат
+	 * @param values    Значения координат
+	 * @throws Exception Размеры массивов indices и values различаются
+	 * @throws IndexOutOfBoundsException Индекс вне размерности вектора
+	 */
+	public SparseVector(int dimension, int[] indices, double[] values) throws Exception
+	{
+		if (indices.length != values.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+		
+		this.dimension = dimension;
+		
+		long[] order = new long[indices.length];
+		
+		for (int i = 0; i < indices.length; i++)
+		{
+			order[i] = (long) Objects.checkIndex(indices[i], dimension) << 32 | i;
+		}
+		
+		Arrays.sort(order);
+		
+		this.indices = new int[indices.length];
+		this.values = new double[indices.length];
+		
+		for (long entry : order)
+		{
+			int index = (int) (entry >>> 32);
+			double value = values[(int) entry];
+			
+			if (size > 0 && this.indices[size - 1] == index)
+			{
+				this.values[size - 1] += value;
+			}
+			else
+			{
+				this.indices[size] = index;
+				this.values[size++] = value;
+			}
+		}
+		
+		compact();
+	}
+	
+	/**
+	 * Копирующий конструктор
+	 *
+	 * @param other Вектор для копирования
+	 */
+	public SparseVector(SparseVector other)
+	{
+		dimension = other.dimension;
+		size = other.size;
+		indices = Arrays.copyOf(other.indices, other.size);
+		values = Arrays.copyOf(other.values, other.size);
+	}
+	
+	/**
+	 * Размерность вектора
+	 *
+	 * @return Количество координат вектора
+	 */
+	@Override
+	public int getDimension()
+	{
+		return dimension;
+	}
+	
+	/**
+	 * Получение координаты вектора двоичным поиском по индексам
+	 *
+	 * @param index Индекс координаты
+	 * @return Значение координаты
+	 * @throws IndexOutOfBoundsException Индекс >= размерности вектора
+	 */
+	@Override
+	public double get(int index) throws IndexOutOfBoundsException
+	{
+		int position = Arrays.binarySearch(indices, 0, size, Objects.checkIndex(index, dimension));
+		
+		return position >= 0 ? values[position] : 0.0;
+	}
+	
+	/**
+	 * Изменение координаты вектора
+	 *
+	 * @param index Индекс координаты
+	 * @param value Новое значение координаты
+	 * @throws IndexOutOfBoundsException Индекс >= размерности вектора
+	 */
+	public void set(int index, double value) throws IndexOutOfBoundsException
+	{
+		int position = Arrays.binarySearch(indices, 0, size, Objects.checkIndex(index, dimension));
+		
+		if (position >= 0)
+		{
+			if (value != 0.0)
+			{
+				values[position] = value;
+			}
+			else
+			{
+				System.arraycopy(indices, position + 1, indices, position, size - position - 1);
+				System.arraycopy(values, position + 1, values, position, size - position - 1);
+				size--;
+			}
+		}
+		else if (value != 0.0)
+		{
+			position = -position - 1;
+			
+			if (size == indices.length)
+			{
+				indices = Arrays.copyOf(indices, Math.max(4, size * 2));
+				values = Arrays.copyOf(values, indices.length);
+			}
+			
+			System.arraycopy(indices, position, indices, position + 1, size - position);
+			System.arraycopy(values, position, values, position + 1, size - position);
+			indices[position] = index;
+			values[position] = value;
+			size++;
+		}
+	}
+	
+	/**
+	 * Количество ненулевых координат
+	 *
+	 * @return Количество хранимых координат
+	 */
+	@Override
+	public int countNonZero()
+	{
+		return size;
+	}
+	
+	/**
+	 * Доля ненулевых координат
+	 *
+	 * @return Отношение количества ненулевых координат к размерности
+	 */
+	public double getFill()
+	{
+		return dimension == 0 ? 0.0 : (double) size / dimension;
+	}
+	
+	/**
+	 * Индекс ненулевой координаты
+	 *
+	 * @param position Номер ненулевой координаты в порядке возрастания индексов
+	 * @return Индекс координаты
+	 * @throws IndexOutOfBoundsException position >= количества ненулевых координат
+	 */
+	public int getIndex(int position) throws IndexOutOfBoundsException
+	{
+		return indices[Objects.checkIndex(position, size)];
+	}
+	
+	/**
+	 * Значение ненулевой координаты
+	 *
+	 * @param position Номер ненулевой координаты в порядке возрастания индексов
+	 * @return Значение координаты
+	 * @throws IndexOutOfBoundsException position >= количества ненулевых координат
+	 */
+	public double getValue(int position) throws IndexOutOfBoundsException
+	{
+		return values[Objects.checkIndex(position, size)];
+	}
+	
+	/**
+	 * Вычисление модуля вектора
+	 *
+	 * @return Модуль вектора
+	 */
+	@Override
+	public double calculateModule()
+	{
+		double result = 0.0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			result += values[i] * values[i];
+		}
+		
+		return Math.sqrt(result);
+	}
+	
+	/**
+	 * Вычисления скалярного произведения векторов<br>
+	 * С разреженным вектором - слияние индексов за O(n + m), либо двоичный поиск индексов меньшего вектора в большем,
+	 * если он много меньше; с плотным - выборка по ненулевым индексам за O(n)
+	 *
+	 * @param other Второй вектор в скалярном произведении
+	 * @return Результат скалярного произведения
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	@Override
+	public double calculateScalarProduct(MathVector other) throws DifferentDimensionException
+	{
+		if (dimension != other.getDimension())
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		double result = 0.0;
+		
+		if (other instanceof SparseVector)
+		{
+			SparseVector ref = (SparseVector) other;
+			SparseVector small = size <= ref.size ? this : ref;
+			SparseVector large = small == this ? ref : this;
+			
+			if (small.size * 16 < large.size)
+			{
+				int from = 0;
+				
+				for (int i = 0; i < small.size && from < large.size; i++)
+				{
+					int position = Arrays.binarySearch(large.indices, from, large.size, small.indices[i]);
+					
+					if (position >= 0)
+					{
+						result += small.values[i] * large.values[position];
+						from = position + 1;
+					}
+					else
+					{
+						from = -position - 1;
+					}
+				}
+				
+				return result;
+			}
+			
+			int i = 0;
+			int j = 0;
+			
+			while (i < size && j < ref.size)
+			{
+				int difference = indices[i] - ref.indices[j];
+				
+				if (difference == 0)
+				{
+					result += values[i++] * ref.values[j++];
+				}
+				else if (difference < 0)
+				{
+					i++;
+				}
+				else
+				{
+					j++;
+				}
+			}
+			
+			return result;
+		}
+		
+		double[] dense = other instanceof Vector ? ((Vector) other).getCoordinates() : null;
+		
+		for (int i = 0; i < size; i++)
+		{
+			result += values[i] * (dense != null ? dense[indices[i]] : other.get(indices[i]));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Прибавление вектора, умноженного на константу, к массиву координат (target += factor * this)<br>
+	 * Изменяются только элементы target с ненулевыми индексами вектора
+	 *
+	 * @param target Плотный массив координат
+	 * @param factor Множитель
+	 * @throws DifferentDimensionException Длина target не равна размерности вектора
+	 */
+	public void scatterAdd(double[] target, double factor) throws DifferentDimensionException
+	{
+		if (target.length != dimension)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		for (int i = 0; i < size; i++)
+		{
+			target[indices[i]] += factor * values[i];
+		}
+	}
+	
+	/**
+	 * Умножение текущего вектора на константу
+	 *
+	 * @param constant Константа для умножения на вектор
+	 * @return Ссылку на себя после умножения на константу
+	 */
+	public SparseVector multiply(double constant)
+	{
+		boolean zero = false;
+		
+		// Произведение становится нулём не только при constant == 0.0, но и при исчезновении порядка
+		// (1e-300 * 1e-300), а явные нули нарушают equals и hashCode
+		for (int i = 0; i < size; i++)
+		{
+			values[i] *= constant;
+			zero |= values[i] == 0.0;
+		}
+		
+		if (zero)
+		{
+			compact();
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Координаты вектора в виде массива
+	 *
+	 * @return Новый массив всех координат
+	 */
+	@Override
+	public double[] toArray()
+	{
+		double[] result = new double[dimension];
+		
+		for (int i = 0; i < size; i++)
+		{
+			result[indices[i]] = values[i];
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Преобразование в плотный вектор
+	 *
+	 * @return Плотный вектор с теми же координатами
+	 */
+	public Vector toVector()
+	{
+		Vector result = new Vector(dimension);
+		
+		result.setCoordinates(toArray());
+		
+		return result;
+	}
+	
+	/**
+	 * Клонирование вектора
+	 *
+	 * @return Новый вектор идентичный данному
+	 */
+	@Override
+	public SparseVector clone()
+	{
+		return new SparseVector(this);
+	}
+	
+	/**
+	 * Представление вектора в виде строки
+	 *
+	 * @return Вектор в формате [n]{i1: a1, i2: a2, ...}, где n - размерность, a1, a2, ... - ненулевые координаты с индексами i1, i2, ...
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append('[').append(dimension).append("]{");
+		
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(indices[i]).append(": ").append(values[i]);
+			
+			if (i + 1 != size)
+			{
+				builder.append(", ");
+			}
+		}
+		
+		builder.append('}');
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Сравнение векторов
+	 *
+	 * @param vector Вектор для сравнения
+	 * @return true в случае равенства размерности и всех координат векторов, false иначе
+	 */
+	@Override
+	public boolean equals(Object vector)
+	{
+		if (this == vector)
+		{
+			return true;
+		}
+		
+		if (vector == null || getClass() != vector.getClass())
+		{
+			return false;
+		}
+		
+		SparseVector ref = (SparseVector) vector;
+		
+		if (dimension != ref.dimension || size != ref.size)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < size; i++)
+		{
+			if (indices[i] != ref.indices[i] || values[i] != ref.values[i])
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Хеш-код вектора
+	 *
+	 * @return Хеш-код, согласованный с equals
+	 */
+	@Override
+	public int hashCode()
+	{
+		int result = dimension;
+		
+		for (int i = 0; i < size; i++)
+		{
+			long bits = Double.doubleToLongBits(values[i]);
+			
+			result = 31 * (31 * result + indices[i]) + (int) (bits ^ bits >>> 32);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Сложение с множителем factor: слияние индексов для разреженного second,
+	 * копирование плотного second с добавлением ненулевых координат first для плотного
+	 */
+	private static MathVector combine(SparseVector first, MathVector second, double factor) throws DifferentDimensionException
+	{
+		if (first.dimension != second.getDimension())
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		if (!(second instanceof SparseVector))
+		{
+			double[] result = second.toArray();
+			
+			for (int i = 0; i < result.length; i++)
+			{
+				result[i] = 0.0 + factor * result[i];
+			}
+			
+			first.scatterAdd(result, 1.0);
+			
+			Vector vector = new Vector(0);
+			
+			vector.setCoordinates(result);
+			
+			return vector;
+		}
+		
+		SparseVector ref = (SparseVector) second;
+		SparseVector result = new SparseVector(first.dimension);
+		
+		result.indices = new int[first.size + ref.size];
+		result.values = new double[first.size + ref.size];
+		
+		int i = 0;
+		int j = 0;
+		
+		while (i < first.size || j < ref.size)
+		{
+			int firstIndex = i < first.size ? first.indices[i] : Integer.MAX_VALUE;
+			int secondIndex = j < ref.size ? ref.indices[j] : Integer.MAX_VALUE;
+			double value;
+			
+			if (firstIndex == secondIndex)
+			{
+				value = first.values[i++] + factor * ref.values[j++];
+			}
+			else if (firstIndex < secondIndex)
+			{
+				value = first.values[i++];
+			}
+			else
+			{
+				value = factor * ref.values[j++];
+			}
+			
+			if (value != 0.0)
+			{
+				result.indices[result.size] = Math.min(firstIndex, secondIndex);
+				result.values[result.size++] = value;
+			}
+		}
+		
+		if (result.getFill() > DENSE_FILL)
+		{
+			return result.toVector();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Удаление нулевых координат
+	 */
+	private void compact()
+	{
+		int length = 0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			if (values[i] != 0.0)
+			{
+				indices[length] = indices[i];
+				values[length++] = values[i];
+			}
+		}
+		
+		size = length;
+	}
+}
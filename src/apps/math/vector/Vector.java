@@ -8,7 +8,7 @@ import apps.math.vector.exceptions.DifferentDimensionException;
 /**
  * Класс описывающий математический вектор
  */
-public class Vector implements Cloneable
+public class Vector implements MathVector, Cloneable
 {
 	private double[] coordinates;
 	
@@ -43,7 +43,7 @@ public class Vector implements Cloneable
 	{
 		if (first.coordinates.length != second.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		Vector result = new Vector(first.coordinates.length);
@@ -68,7 +68,7 @@ public class Vector implements Cloneable
 	{
 		if (first.coordinates.length != second.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		Vector result = new Vector(first.coordinates.length);
@@ -100,6 +100,113 @@ public class Vector implements Cloneable
 		return result;
 	}
 	
+	/**
+	 * Пакетное сложение пар векторов без исключений для отдельных пар
+	 *
+	 * @param first  Первые векторы
+	 * @param second Вторые векторы
+	 * @param result Массив для сумм, для пар со статусом не OK записывается null
+	 * @return Статус каждой пары
+	 * @throws Exception Разные размеры массивов
+	 */
+	public static VectorStatus[] add(Vector[] first, Vector[] second, Vector[] result) throws Exception
+	{
+		return combine(first, second, result, 1.0);
+	}
+	
+	/**
+	 * Пакетное вычитание пар векторов без исключений для отдельных пар
+	 *
+	 * @param first  Уменьшаемые векторы
+	 * @param second Вычитаемые векторы
+	 * @param result Массив для разностей, для пар со статусом не OK записывается null
+	 * @return Статус каждой пары
+	 * @throws Exception Разные размеры массивов
+	 */
+	public static VectorStatus[] subtract(Vector[] first, Vector[] second, Vector[] result) throws Exception
+	{
+		return combine(first, second, result, -1.0);
+	}
+	
+	/**
+	 * Пакетное вычисление скалярных произведений пар векторов без исключений для отдельных пар
+	 *
+	 * @param first  Первые векторы
+	 * @param second Вторые векторы
+	 * @param result Массив для произведений, для пар со статусом не OK записывается NaN
+	 * @return Статус каждой пары
+	 * @throws Exception Разные размеры массивов
+	 */
+	public static VectorStatus[] calculateScalarProduct(Vector[] first, Vector[] second, double[] result) throws Exception
+	{
+		if (first.length != second.length || first.length != result.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+		
+		VectorStatus[] statuses = new VectorStatus[first.length];
+		
+		for (int i = 0; i < first.length; i++)
+		{
+			statuses[i] = check(first[i], second[i]);
+			result[i] = Double.NaN;
+			
+			if (statuses[i] == VectorStatus.OK)
+			{
+				double sum = 0.0;
+				
+				for (int j = 0; j < first[i].coordinates.length; j++)
+				{
+					sum += first[i].coordinates[j] * second[i].coordinates[j];
+				}
+				
+				result[i] = sum;
+			}
+		}
+		
+		return statuses;
+	}
+	
+	private static VectorStatus[] combine(Vector[] first, Vector[] second, Vector[] result, double sign) throws Exception
+	{
+		if (first.length != second.length || first.length != result.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+		
+		VectorStatus[] statuses = new VectorStatus[first.length];
+		
+		for (int i = 0; i < first.length; i++)
+		{
+			statuses[i] = check(first[i], second[i]);
+			result[i] = null;
+			
+			if (statuses[i] == VectorStatus.OK)
+			{
+				Vector sum = new Vector(first[i]);
+				
+				for (int j = 0; j < sum.coordinates.length; j++)
+				{
+					sum.coordinates[j] += sign * second[i].coordinates[j];
+				}
+				
+				result[i] = sum;
+			}
+		}
+		
+		return statuses;
+	}
+	
+	private static VectorStatus check(Vector first, Vector second)
+	{
+		if (first == null || second == null)
+		{
+			return VectorStatus.MISSING;
+		}
+		
+		return first.coordinates.length == second.coordinates.length ? VectorStatus.OK : VectorStatus.DIFFERENT_DIMENSION;
+	}
+	
 	/**
 	 * Конструктор для задания координат вектора
 	 *
@@ -147,6 +254,91 @@ public class Vector implements Cloneable
 		return Math.sqrt(result);
 	}
 	
+	/**
+	 * Вычисление модуля вектора заданным способом суммирования
+	 *
+	 * @param mode Способ суммирования, определяющий скорость, погрешность и устойчивость к переполнению
+	 * @return Модуль вектора
+	 */
+	public double calculateModule(ReductionMode mode)
+	{
+		return Reductions.norm(coordinates, mode);
+	}
+	
+	/**
+	 * Вычисления скалярного произведения векторов заданным способом суммирования
+	 *
+	 * @param other Второй вектор в скалярном произведении
+	 * @param mode  Способ суммирования, определяющий скорость, погрешность и устойчивость к переполнению
+	 * @return Результат скалярного произведения
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public double calculateScalarProduct(Vector other, ReductionMode mode) throws DifferentDimensionException
+	{
+		if (coordinates.length != other.coordinates.length)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		return Reductions.dot(coordinates, other.coordinates, mode);
+	}
+	
+	/**
+	 * Размерность вектора
+	 *
+	 * @return Количество координат вектора
+	 */
+	@Override
+	public int getDimension()
+	{
+		return coordinates.length;
+	}
+	
+	/**
+	 * Получение координаты вектора
+	 *
+	 * @param index Индекс координаты
+	 * @return Значение координаты
+	 * @throws IndexOutOfBoundsException Индекс >= размерности вектора
+	 */
+	@Override
+	public double get(int index) throws IndexOutOfBoundsException
+	{
+		return coordinates[index];
+	}
+	
+	/**
+	 * Количество ненулевых координат
+	 *
+	 * @return Количество ненулевых координат
+	 */
+	@Override
+	public int countNonZero()
+	{
+		int result = 0;
+		
+		for (double coordinate : coordinates)
+		{
+			if (coordinate != 0.0)
+			{
+				result++;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Координаты вектора в виде массива
+	 *
+	 * @return Копия массива координат
+	 */
+	@Override
+	public double[] toArray()
+	{
+		return Arrays.copyOf(coordinates, coordinates.length);
+	}
+	
 	/**
 	 * Вычисления скалярного произведения векторов
 	 *
@@ -158,7 +350,7 @@ public class Vector implements Cloneable
 	{
 		if (coordinates.length != other.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		double result = 0.0;
@@ -171,6 +363,42 @@ public class Vector implements Cloneable
 		return result;
 	}
 	
+	/**
+	 * Вычисления скалярного произведения с вектором любого вида<br>
+	 * Для SparseVector перебираются только его ненулевые координаты
+	 *
+	 * @param other Второй вектор в скалярном произведении
+	 * @return Результат скалярного произведения
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	@Override
+	public double calculateScalarProduct(MathVector other) throws DifferentDimensionException
+	{
+		if (other instanceof Vector)
+		{
+			return calculateScalarProduct((Vector) other);
+		}
+		
+		if (other instanceof SparseVector)
+		{
+			return other.calculateScalarProduct(this);
+		}
+		
+		if (coordinates.length != other.getDimension())
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		double result = 0.0;
+		
+		for (int i = 0; i < coordinates.length; i++)
+		{
+			result += coordinates[i] * other.get(i);
+		}
+		
+		return result;
+	}
+	
 	/**
 	 * Сложение вектора с текущим вектором
 	 *
@@ -182,7 +410,7 @@ public class Vector implements Cloneable
 	{
 		if (coordinates.length != other.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		for (int i = 0; i < coordinates.length; i++)
@@ -204,7 +432,7 @@ public class Vector implements Cloneable
 	{
 		if (coordinates.length != other.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		for (int i = 0; i < coordinates.length; i++)
@@ -254,7 +482,7 @@ public class Vector implements Cloneable
 	{
 		if (coordinates.length != other.coordinates.length)
 		{
-			throw new DifferentDimensionException();
+			throw DifferentDimensionException.STACKLESS;
 		}
 		
 		if (DoubleStream.of(coordinates).anyMatch(value -> value == 0.0) || DoubleStream.of(other.coordinates).anyMatch(value -> value == 0.0))
@@ -372,6 +600,41 @@ public class Vector implements Cloneable
 		return builder.toString();
 	}
 	
+	/**
+	 * Проверка векторов на приближённое равенство
+	 *
+	 * @param other   Второй вектор
+	 * @param epsilon Допустимое евклидово расстояние между векторами
+	 * @return true если расстояние между векторами не больше epsilon, false иначе (в том числе при NaN в координатах или epsilon)
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public boolean isClose(Vector other, double epsilon) throws DifferentDimensionException
+	{
+		if (coordinates.length != other.coordinates.length)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		double limit = epsilon * epsilon;
+		double distance = 0.0;
+		
+		for (int i = 0; i < coordinates.length; i++)
+		{
+			// Равные координаты дают нулевую разность и для бесконечностей, где вычитание дало бы NaN
+			double difference = coordinates[i] == other.coordinates[i] ? 0.0 : coordinates[i] - other.coordinates[i];
+			
+			distance += difference * difference;
+			
+			// Отрицание сравнения отвергает и NaN: вектор с NaN не близок ни к одному вектору
+			if (!(distance <= limit))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
 	/**
 	 * Сравнение векторов
 	 *
@@ -381,7 +644,12 @@ public class Vector implements Cloneable
 	@Override
 	public boolean equals(Object vector)
 	{
-		if (getClass() != vector.getClass())
+		if (this == vector)
+		{
+			return true;
+		}
+		
+		if (vector == null || getClass() != vector.getClass())
 		{
 			return false;
 		}
@@ -403,4 +671,43 @@ public class Vector implements Cloneable
 		
 		return true;
 	}
+	
+	/**
+	 * Хеш-код вектора, согласованный с equals: -0.0 и 0.0 дают одинаковый хеш-код<br>
+	 * Координаты обрабатываются четырьмя независимыми накопителями, чтобы цепочка умножений
+	 * не ограничивала скорость вычисления для длинных векторов
+	 *
+	 * @return Хеш-код вектора
+	 */
+	@Override
+	public int hashCode()
+	{
+		int first = 1;
+		int second = 0;
+		int third = 0;
+		int fourth = 0;
+		int i = 0;
+		
+		for (; i + 3 < coordinates.length; i += 4)
+		{
+			first = 31 * first + hash(coordinates[i]);
+			second = 31 * second + hash(coordinates[i + 1]);
+			third = 31 * third + hash(coordinates[i + 2]);
+			fourth = 31 * fourth + hash(coordinates[i + 3]);
+		}
+		
+		for (; i < coordinates.length; i++)
+		{
+			first = 31 * first + hash(coordinates[i]);
+		}
+		
+		return ((first * 31 + second) * 31 + third) * 31 + fourth + coordinates.length;
+	}
+	
+	private static int hash(double coordinate)
+	{
+		long bits = Double.doubleToLongBits(coordinate + 0.0);
+		
+		return (int) (bits ^ bits >>> 32);
+	}
 }
@@ -0,0 +1,278 @@
+package apps.math.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import apps.math.vector.exceptions.DifferentDimensionException;
+
+/**
+ * Класс описывающий индекс для удаления почти совпадающих векторов<br>
+ * Векторы раскладываются по корзинам хеширования, чувствительного к расстоянию (LSH):
+ * каждая из tables таблиц хеширует вектор набором из hashesPerTable случайных гауссовых проекций
+ * h(v) = floor((a·v + b) / w), где w = 8 * epsilon. Кандидаты из корзин проверяются точным расчётом расстояния,
+ * поэтому ложных совпадений не бывает, а вероятность пропустить вектор на расстоянии epsilon
+ * при параметрах по умолчанию (8 таблиц по 4 проекции) меньше 0.1%.<br>
+ * При epsilon = 0 ищутся только точные совпадения с помощью Vector.hashCode.<br>
+ * Индекс не потокобезопасен
+ */
+public class VectorDedupIndex
+{
+	private static final int DEFAULT_TABLES = 8;
+	private static final int DEFAULT_HASHES = 4;
+	private static final double BUCKET_WIDTH = 8.0;
+	
+	private final int dimension;
+	private final double epsilon;
+	private final double[][] projections;
+	private final double[] offsets;
+	private final int hashesPerTable;
+	private final List<Map<Long, int[]>> tables;
+	private final List<Vector> vectors = new ArrayList<>();
+	private int[] visited = new int[16];
+	private int stamp;
+	
+	/**
+	 * Удаление почти совпадающих векторов из массива
+	 *
+	 * @param vectors Векторы одинаковой размерности
+	 * @param epsilon Расстояние, на котором векторы считаются совпадающими
+	 * @return Первые вхождения векторов в порядке массива
+	 * @throws DifferentDimensionException Разная размерность векторов
+	 */
+	public static List<Vector> deduplicate(Vector[] vectors, double epsilon) throws DifferentDimensionException
+	{
+		List<Vector> result = new ArrayList<>();
+		
+		if (vectors.length == 0)
+		{
+			return result;
+		}
+		
+		VectorDedupIndex index = new VectorDedupIndex(vectors[0].getCoordinates().length, epsilon);
+		
+		for (Vector vector : vectors)
+		{
+			if (index.add(vector))
+			{
+				result.add(vector);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Конструктор индекса с параметрами хеширования по умолчанию
+	 *
+	 * @param dimension Размерность векторов
+	 * @param epsilon   Расстояние, на котором векторы считаются совпадающими
+	 */
+	public VectorDedupIndex(int dimension, double epsilon)
+	{
+		this(dimension, epsilon, DEFAULT_TABLES, DEFAULT_HASHES, 0x5DEECE66DL);
+	}
+	
+	/**
+	 * Конструктор индекса
+	 *
+	 * @param dimension      Размерность векторов
+	 * @param epsilon        Расстояние, на котором векторы считаются совпадающими
+	 * @param tables         Количество таблиц хеширования, больше таблиц - меньше пропусков
+	 * @param hashesPerTable Количество проекций в ключе таблицы, больше проекций - меньше кандидатов в корзине
+	 * @param seed           Начальное значение генератора случайных проекций
+	 * @throws IllegalArgumentException Отрицательное epsilon или неположительное количество таблиц или проекций
+	 */
+	public VectorDedupIndex(int dimension, double epsilon, int tables, int hashesPerTable, long seed) throws IllegalArgumentException
+	{
+		if (!(epsilon >= 0.0) || tables <= 0 || hashesPerTable <= 0)
+		{
+			throw new IllegalArgumentException("Неверные параметры индекса");
+		}
+		
+		this.dimension = dimension;
+		this.epsilon = epsilon;
+		this.hashesPerTable = epsilon == 0.0 ? 0 : hashesPerTable;
+		
+		int count = epsilon == 0.0 ? 1 : tables;
+		Random random = new Random(seed);
+		
+		projections = new double[count * this.hashesPerTable][dimension];
+		offsets = new double[projections.length];
+		
+		for (int i = 0; i < projections.length; i++)
+		{
+			for (int j = 0; j < dimension; j++)
+			{
+				projections[i][j] = random.nextGaussian() / (BUCKET_WIDTH * epsilon);
+			}
+			
+			offsets[i] = random.nextDouble();
+		}
+		
+		this.tables = new ArrayList<>(count);
+		
+		for (int i = 0; i < count; i++)
+		{
+			this.tables.add(new HashMap<>());
+		}
+	}
+	
+	/**
+	 * Количество векторов в индексе
+	 *
+	 * @return Количество векторов
+	 */
+	public int size()
+	{
+		return vectors.size();
+	}
+	
+	/**
+	 * Поиск вектора индекса на расстоянии не больше epsilon
+	 *
+	 * @param vector Искомый вектор
+	 * @return Найденный вектор индекса, null если такого нет
+	 * @throws DifferentDimensionException Размерность вектора не совпадает с размерностью индекса
+	 */
+	public Vector findDuplicate(Vector vector) throws DifferentDimensionException
+	{
+		return find(vector, keys(vector));
+	}
+	
+	/**
+	 * Добавление вектора, если в индексе нет вектора на расстоянии не больше epsilon
+	 *
+	 * @param vector Добавляемый вектор (не копируется)
+	 * @return true если вектор добавлен, false если найден дубликат
+	 * @throws DifferentDimensionException Размерность вектора не совпадает с размерностью индекса
+	 */
+	public boolean add(Vector vector) throws DifferentDimensionException
+	{
+		long[] keys = keys(vector);
+		
+		if (find(vector, keys) != null)
+		{
+			return false;
+		}
+		
+		int id = vectors.size();
+		
+		vectors.add(vector);
+		
+		for (int i = 0; i < keys.length; i++)
+		{
+			Map<Long, int[]> table = tables.get(i);
+			int[] bucket = table.get(keys[i]);
+			
+			if (bucket == null)
+			{
+				bucket = new int[2];
+			}
+			else if (bucket[0] + 1 == bucket.length)
+			{
+				bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			}
+			
+			bucket[++bucket[0]] = id;
+			table.put(keys[i], bucket);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Ключи корзин вектора во всех таблицах
+	 */
+	private long[] keys(Vector vector) throws DifferentDimensionException
+	{
+		double[] coordinates = vector.getCoordinates();
+		
+		if (coordinates.length != dimension)
+		{
+			throw DifferentDimensionException.STACKLESS;
+		}
+		
+		long[] result = new long[tables.size()];
+		
+		if (hashesPerTable == 0)
+		{
+			result[0] = vector.hashCode();
+			
+			return result;
+		}
+		
+		for (int i = 0; i < result.length; i++)
+		{
+			long key = 0;
+			
+			for (int j = 0; j < hashesPerTable; j++)
+			{
+				double[] projection = projections[i * hashesPerTable + j];
+				double value = offsets[i * hashesPerTable + j];
+				
+				for (int k = 0; k < dimension; k++)
+				{
+					value += projection[k] * coordinates[k];
+				}
+				
+				key = key * 0x9E3779B97F4A7C15L + (long) Math.floor(value);
+			}
+			
+			result[i] = key;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Проверка кандидатов из корзин, каждый кандидат проверяется не более одного раза
+	 */
+	private Vector find(Vector vector, long[] keys) throws DifferentDimensionException
+	{
+		if (visited.length < vectors.size())
+		{
+			visited = Arrays.copyOf(visited, Math.max(vectors.size(), visited.length * 2));
+		}
+		
+		if (++stamp == 0)
+		{
+			Arrays.fill(visited, 0);
+			stamp = 1;
+		}
+		
+		for (int i = 0; i < keys.length; i++)
+		{
+			int[] bucket = tables.get(i).get(keys[i]);
+			
+			if (bucket == null)
+			{
+				continue;
+			}
+			
+			for (int j = 1; j <= bucket[0]; j++)
+			{
+				int id = bucket[j];
+				
+				if (visited[id] == stamp)
+				{
+					continue;
+				}
+				
+				visited[id] = stamp;
+				
+				Vector candidate = vectors.get(id);
+				
+				if (epsilon == 0.0 ? candidate.equals(vector) : candidate.isClose(vector, epsilon))
+				{
+					return candidate;
+				}
+			}
+		}
+		
+		return null;
+	}
+}
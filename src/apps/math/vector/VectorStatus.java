@@ -0,0 +1,23 @@
+package apps.math.vector;
+
+/**
+ * Перечисление результатов поэлементных операций над массивами векторов<br>
+ * Пакетные операции Vector возвращают статус для каждой пары векторов вместо исключения
+ */
+public enum VectorStatus
+{
+	/**
+	 * Операция выполнена
+	 */
+	OK,
+	
+	/**
+	 * Вектор не задан (null)
+	 */
+	MISSING,
+	
+	/**
+	 * Разная размерность векторов
+	 */
+	DIFFERENT_DIMENSION
+}
@@ -5,6 +5,12 @@ package apps.math.vector.exceptions;
  */
 public class DifferentDimensionException extends Exception
 {
+	/**
+	 * Общий экземпляр без трассировки стека и без подавленных исключений<br>
+	 * Создаётся один раз и не изменяется, поэтому его можно бросать из любых потоков
+	 */
+	public static final DifferentDimensionException STACKLESS = new DifferentDimensionException(false);
+	
 	/**
 	 * Конструктор по умолчанию, создающий нужное сообщение для Exception
 	 */
@@ -12,4 +18,15 @@ public class DifferentDimensionException extends Exception
 	{
 		super("Разная размерность у векторов");
 	}
+	
+	/**
+	 * Конструктор с выбором заполнения трассировки стека<br>
+	 * Без трассировки стека создание исключения не обходит стек вызовов
+	 *
+	 * @param writableStackTrace true если трассировка стека заполняется и подавленные исключения сохраняются
+	 */
+	public DifferentDimensionException(boolean writableStackTrace)
+	{
+		super("Разная размерность у векторов", null, writableStackTrace, writableStackTrace);
+	}
 }
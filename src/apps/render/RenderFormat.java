@@ -0,0 +1,23 @@
+package apps.render;
+
+/**
+ * Перечисление форматов вывода Renderer
+ */
+public enum RenderFormat
+{
+	/**
+	 * Текст в формате toString, время отправления выводится как HH:mm
+	 */
+	TEXT,
+	
+	/**
+	 * CSV по RFC 4180: поезд - строка number,destination,departure,common,compartment,luxury,
+	 * множество и вектор - строка из своих элементов
+	 */
+	CSV,
+	
+	/**
+	 * JSON Lines: каждый объект - отдельная строка JSON, поезд в формате TimetableServer
+	 */
+	JSON
+}
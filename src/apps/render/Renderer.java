@@ -0,0 +1,716 @@
+package apps.render;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import apps.math.set.CharSet;
+import apps.math.vector.Vector;
+import apps.trains.StationDictionary;
+import apps.trains.Train;
+
+/**
+ * Класс описывающий потоковый вывод поездов, множеств и векторов в канал NIO<br>
+ * Объекты кодируются в UTF-8 сразу в один переиспользуемый буфер, который сбрасывается в канал при заполнении,
+ * поэтому память не зависит от объёма вывода. Названия типов мест, время HH:mm для всех минут суток,
+ * пары цифр и закодированные названия станций (по идентификатору StationDictionary) вычисляются один раз.
+ * Для поездов, множеств и целых чисел промежуточные строки не создаются; double выводится через Double.toString,
+ * чтобы результат совпадал с Vector.toString.<br>
+ * Объект не потокобезопасен
+ */
+public class Renderer implements Flushable, Closeable
+{
+	/**
+	 * Размер буфера по умолчанию
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	
+	private static final byte[] DIGITS = new byte[200];
+	private static final byte[] TIMES = new byte[24 * 60 * 5];
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[][] SEAT_LABELS = new byte[Train.SeatType.values().length][];
+	private static final byte[] CSV_HEADER;
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NUMBER_KEY = "{\"number\":".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DESTINATION_KEY = ",\"destination\":".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DEPARTURE_KEY = ",\"departure\":".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SEATS_KEY = ",\"seats\":[".getBytes(StandardCharsets.US_ASCII);
+	private static final int MAX_CHAR = 6;
+	
+	static
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			DIGITS[2 * i] = (byte) ('0' + i / 10);
+			DIGITS[2 * i + 1] = (byte) ('0' + i % 10);
+		}
+		
+		for (int minute = 0; minute < 24 * 60; minute++)
+		{
+			System.arraycopy(DIGITS, 2 * (minute / 60), TIMES, 5 * minute, 2);
+			TIMES[5 * minute + 2] = ':';
+			System.arraycopy(DIGITS, 2 * (minute % 60), TIMES, 5 * minute + 3, 2);
+		}
+		
+		StringBuilder header = new StringBuilder("number,destination,departure");
+		
+		for (Train.SeatType type : Train.SeatType.values())
+		{
+			String label = type.toString().toLowerCase();
+			
+			SEAT_LABELS[type.ordinal()] = (label + ": ").getBytes(StandardCharsets.UTF_8);
+			header.append(',').append(label);
+		}
+		
+		CSV_HEADER = header.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private final WritableByteChannel channel;
+	private final RenderFormat format;
+	private final byte[] bytes;
+	private final ByteBuffer buffer;
+	private int position;
+	private long written;
+	private boolean headerWritten;
+	private byte[][] stations = new byte[16][];
+	
+	/**
+	 * Конструктор вывода в канал
+	 *
+	 * @param channel    Канал для записи
+	 * @param format     Формат вывода
+	 * @param bufferSize Размер буфера в байтах
+	 * @throws IllegalArgumentException Размер буфера меньше 64 байт
+	 */
+	public Renderer(WritableByteChannel channel, RenderFormat format, int bufferSize)
+	{
+		if (bufferSize < 64)
+		{
+			throw new IllegalArgumentException("Размер буфера должен быть не меньше 64 байт");
+		}
+		
+		this.channel = channel;
+		this.format = format;
+		this.bytes = new byte[bufferSize];
+		this.buffer = ByteBuffer.wrap(bytes);
+	}
+	
+	/**
+	 * Конструктор вывода в канал с буфером размера DEFAULT_BUFFER_SIZE
+	 *
+	 * @param channel Канал для записи
+	 * @param format  Формат вывода
+	 */
+	public Renderer(WritableByteChannel channel, RenderFormat format)
+	{
+		this(channel, format, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Конструктор вывода в поток
+	 *
+	 * @param output Поток для записи
+	 * @param format Формат вывода
+	 */
+	public Renderer(OutputStream output, RenderFormat format)
+	{
+		this(Channels.newChannel(output), format);
+	}
+	
+	/**
+	 * Вывод поезда<br>
+	 * Для CSV перед первым поездом выводится строка заголовка
+	 *
+	 * @param train Поезд
+	 * @throws IOException Ошибка записи в канал
+	 */
+	public void render(Train train) throws IOException
+	{
+		List<Integer> seats = train.getSeats();
+		Calendar departureTime = train.getDepartureTime();
+		int minute = departureTime == null ? -1 : departureTime.get(Calendar.HOUR_OF_DAY) * 60 + departureTime.get(Calendar.MINUTE);
+		
+		switch (format)
+		{
+			case TEXT:
+				string(train.getNumber());
+				put('\n');
+				station(train.getDestinationId());
+				put(':');
+				put(' ');
+				time(minute);
+				
+				for (int i = 0; i < seats.size(); i++)
+				{
+					put('\n');
+					put(SEAT_LABELS[i]);
+					integer(seats.get(i));
+				}
+				
+				put('\n');
+				
+				break;
+			case CSV:
+				if (!headerWritten)
+				{
+					put(CSV_HEADER);
+					headerWritten = true;
+				}
+				
+				string(train.getNumber());
+				put(',');
+				station(train.getDestinationId());
+				put(',');
+				time(minute);
+				
+				for (int seat : seats)
+				{
+					put(',');
+					integer(seat);
+				}
+				
+				put('\r');
+				put('\n');
+				
+				break;
+			case JSON:
+				put(NUMBER_KEY);
+				string(train.getNumber());
+				put(DESTINATION_KEY);
+				station(train.getDestinationId());
+				put(DEPARTURE_KEY);
+				time(minute);
+				put(SEATS_KEY);
+				
+				for (int i = 0; i < seats.size(); i++)
+				{
+					if (i != 0)
+					{
+						put(',');
+					}
+					
+					integer(seats.get(i));
+				}
+				
+				put(']');
+				put('}');
+				put('\n');
+				
+				break;
+			default:
+				throw new IllegalStateException("Неизвестный формат " + format);
+		}
+	}
+	
+	/**
+	 * Вывод всех поездов списка
+	 *
+	 * @param trains Поезда
+	 * @throws IOException Ошибка записи в канал
+	 */
+	public void renderAll(List<Train> trains) throws IOException
+	{
+		for (Train train : trains)
+		{
+			render(train);
+		}
+	}
+	
+	/**
+	 * Вывод множества символов
+	 *
+	 * @param set Множество
+	 * @throws IOException Ошибка записи в канал
+	 */
+	public void render(CharSet set) throws IOException
+	{
+		List<Character> chars = set.getChars();
+		
+		if (format == RenderFormat.TEXT)
+		{
+			put('{');
+			
+			for (int i = 0; i < chars.size(); i++)
+			{
+				if (i != 0)
+				{
+					put(',');
+					put(' ');
+				}
+				
+				ensure(MAX_CHAR);
+				character(chars.get(i), (char) 0);
+			}
+			
+			put('}');
+			put('\n');
+			
+			return;
+		}
+		
+		if (format == RenderFormat.JSON)
+		{
+			put('[');
+		}
+		
+		for (int i = 0; i < chars.size(); i++)
+		{
+			if (i != 0)
+			{
+				put(',');
+			}
+			
+			char character = chars.get(i);
+			
+			ensure(2 * MAX_CHAR + 2);
+			
+			if (format == RenderFormat.JSON || character == '"' || character == ',' || character == '\r' || character == '\n')
+			{
+				bytes[position++] = '"';
+				escaped(character, (char) 0);
+				bytes[position++] = '"';
+			}
+			else
+			{
+				character(character, (char) 0);
+			}
+		}
+		
+		if (format == RenderFormat.JSON)
+		{
+			put(']');
+			put('\n');
+		}
+		else
+		{
+			put('\r');
+			put('\n');
+		}
+	}
+	
+	/**
+	 * Вывод вектора
+	 *
+	 * @param vector Вектор
+	 * @throws IOException Ошибка записи в канал
+	 */
+	public void render(Vector vector) throws IOException
+	{
+		if (format != RenderFormat.CSV)
+		{
+			put(format == RenderFormat.TEXT ? '(' : '[');
+		}
+		
+		for (int i = 0; i < vector.getDimension(); i++)
+		{
+			if (i != 0)
+			{
+				put(',');
+				
+				if (format == RenderFormat.TEXT)
+				{
+					put(' ');
+				}
+			}
+			
+			decimal(vector.get(i));
+		}
+		
+		if (format == RenderFormat.CSV)
+		{
+			put('\r');
+		}
+		else
+		{
+			put(format == RenderFormat.TEXT ? ')' : ']');
+		}
+		
+		put('\n');
+	}
+	
+	/**
+	 * Количество байт, переданных в канал
+	 *
+	 * @return Количество байт без учёта данных в буфере
+	 */
+	public long getBytesWritten()
+	{
+		return written;
+	}
+	
+	/**
+	 * Запись содержимого буфера в канал
+	 *
+	 * @throws IOException Ошибка записи в канал
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		buffer.limit(position).position(0);
+		
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		
+		buffer.clear();
+		written += position;
+		position = 0;
+	}
+	
+	/**
+	 * Запись содержимого буфера и закрытие канала
+	 *
+	 * @throws IOException Ошибка записи в канал
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+	
+	private void ensure(int count) throws IOException
+	{
+		if (bytes.length - position < count)
+		{
+			flush();
+		}
+	}
+	
+	private void put(char value) throws IOException
+	{
+		ensure(1);
+		bytes[position++] = (byte) value;
+	}
+	
+	private void put(byte[] value) throws IOException
+	{
+		int offset = 0;
+		
+		while (offset < value.length)
+		{
+			ensure(1);
+			
+			int count = Math.min(value.length - offset, bytes.length - position);
+			
+			System.arraycopy(value, offset, bytes, position, count);
+			position += count;
+			offset += count;
+		}
+	}
+	
+	/**
+	 * Вывод времени HH:mm из таблицы, для JSON в кавычках
+	 */
+	private void time(int minute) throws IOException
+	{
+		ensure(7);
+		
+		if (format == RenderFormat.JSON)
+		{
+			bytes[position++] = '"';
+		}
+		
+		if (minute >= 0)
+		{
+			System.arraycopy(TIMES, 5 * minute, bytes, position, 5);
+			position += 5;
+		}
+		
+		if (format == RenderFormat.JSON)
+		{
+			bytes[position++] = '"';
+		}
+	}
+	
+	/**
+	 * Вывод целого числа по две цифры за шаг
+	 */
+	private void integer(int value) throws IOException
+	{
+		ensure(11);
+		
+		if (value == Integer.MIN_VALUE)
+		{
+			put(Integer.toString(value).getBytes(StandardCharsets.US_ASCII));
+			
+			return;
+		}
+		
+		if (value < 0)
+		{
+			bytes[position++] = '-';
+			value = -value;
+		}
+		
+		int length = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : value < 10000 ? 4 : value < 100000 ? 5 : value < 1000000 ? 6 : value < 10000000 ? 7 : value < 100000000 ? 8 : value < 1000000000 ? 9 : 10;
+		int end = position + length;
+		int index = end;
+		
+		while (value >= 100)
+		{
+			int pair = value % 100;
+			
+			value /= 100;
+			bytes[--index] = DIGITS[2 * pair + 1];
+			bytes[--index] = DIGITS[2 * pair];
+		}
+		
+		if (value >= 10)
+		{
+			bytes[--index] = DIGITS[2 * value + 1];
+			bytes[--index] = DIGITS[2 * value];
+		}
+		else
+		{
+			bytes[--index] = (byte) ('0' + value);
+		}
+		
+		position = end;
+	}
+	
+	/**
+	 * Вывод double как в Double.toString (целые значения до 10^7 без Double.toString), NaN и бесконечности в JSON выводятся как null
+	 */
+	private void decimal(double value) throws IOException
+	{
+		if (format == RenderFormat.JSON && (Double.isNaN(value) || Double.isInfinite(value)))
+		{
+			put(NULL);
+			
+			return;
+		}
+		
+		if (value == (int) value && Math.abs(value) < 1e7 && (value != 0 || 1 / value > 0))
+		{
+			integer((int) value);
+			put('.');
+			put('0');
+			
+			return;
+		}
+		
+		String text = Double.toString(value);
+		
+		ensure(text.length());
+		
+		for (int i = 0; i < text.length(); i++)
+		{
+			bytes[position++] = (byte) text.charAt(i);
+		}
+	}
+	
+	/**
+	 * Вывод названия станции из кэша закодированных и экранированных названий
+	 */
+	private void station(int id) throws IOException
+	{
+		if (id == StationDictionary.NO_STATION)
+		{
+			if (format == RenderFormat.JSON)
+			{
+				put(NULL);
+			}
+			
+			return;
+		}
+		
+		if (id >= stations.length)
+		{
+			stations = Arrays.copyOf(stations, Math.max(2 * stations.length, id + 1));
+		}
+		
+		if (stations[id] != null)
+		{
+			put(stations[id]);
+			
+			return;
+		}
+		
+		String name = StationDictionary.getShared().getName(id);
+		int limit = 2 * MAX_CHAR * (name.length() + 1);
+		
+		if (limit > bytes.length)
+		{
+			string(name);
+			
+			return;
+		}
+		
+		ensure(limit);
+		
+		int start = position;
+		
+		string(name);
+		stations[id] = Arrays.copyOfRange(bytes, start, position);
+	}
+	
+	/**
+	 * Вывод строки в UTF-8 с экранированием для JSON и CSV
+	 */
+	private void string(String value) throws IOException
+	{
+		if (value == null)
+		{
+			if (format == RenderFormat.JSON)
+			{
+				put(NULL);
+			}
+			
+			return;
+		}
+		
+		boolean quoted = format == RenderFormat.JSON || format == RenderFormat.CSV && needsQuotes(value);
+		
+		if (quoted)
+		{
+			put('"');
+		}
+		
+		int length = value.length();
+		
+		for (int i = 0; i < length; i++)
+		{
+			ensure(2 * MAX_CHAR);
+			
+			char character = value.charAt(i);
+			char next = i + 1 < length ? value.charAt(i + 1) : 0;
+			
+			if (character < 0x80 && !quoted)
+			{
+				bytes[position++] = (byte) character;
+			}
+			else if (quoted)
+			{
+				i += escaped(character, next);
+			}
+			else
+			{
+				i += character(character, next);
+			}
+		}
+		
+		if (quoted)
+		{
+			put('"');
+		}
+	}
+	
+	private static boolean needsQuotes(String value)
+	{
+		for (int i = 0; i < value.length(); i++)
+		{
+			char character = value.charAt(i);
+			
+			if (character == '"' || character == ',' || character == '\r' || character == '\n')
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Вывод символа с экранированием для JSON или CSV, в буфере должно быть не меньше 2 * MAX_CHAR байт
+	 *
+	 * @return 1 если использован следующий символ (суррогатная пара), 0 иначе
+	 */
+	private int escaped(char character, char next)
+	{
+		if (format == RenderFormat.CSV)
+		{
+			if (character == '"')
+			{
+				bytes[position++] = '"';
+			}
+			
+			return character(character, next);
+		}
+		
+		if (character == '"' || character == '\\')
+		{
+			bytes[position++] = '\\';
+			bytes[position++] = (byte) character;
+			
+			return 0;
+		}
+		
+		if (character < 0x20)
+		{
+			bytes[position++] = '\\';
+			bytes[position++] = 'u';
+			bytes[position++] = '0';
+			bytes[position++] = '0';
+			bytes[position++] = HEX[character >> 4];
+			bytes[position++] = HEX[character & 0xF];
+			
+			return 0;
+		}
+		
+		return character(character, next);
+	}
+	
+	/**
+	 * Кодирование символа в UTF-8, одиночный суррогат заменяется на '?'
+	 *
+	 * @return 1 если использован следующий символ (суррогатная пара), 0 иначе
+	 */
+	private int character(char character, char next)
+	{
+		if (character < 0x80)
+		{
+			bytes[position++] = (byte) character;
+			
+			return 0;
+		}
+		
+		if (character < 0x800)
+		{
+			bytes[position++] = (byte) (0xC0 | character >> 6);
+			bytes[position++] = (byte) (0x80 | character & 0x3F);
+			
+			return 0;
+		}
+		
+		if (Character.isHighSurrogate(character) && Character.isLowSurrogate(next))
+		{
+			int codePoint = Character.toCodePoint(character, next);
+			
+			bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+			bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+			bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+			
+			return 1;
+		}
+		
+		if (Character.isSurrogate(character))
+		{
+			bytes[position++] = '?';
+			
+			return 0;
+		}
+		
+		bytes[position++] = (byte) (0xE0 | character >> 12);
+		bytes[position++] = (byte) (0x80 | character >> 6 & 0x3F);
+		bytes[position++] = (byte) (0x80 | character & 0x3F);
+		
+		return 0;
+	}
+}
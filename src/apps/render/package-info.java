@@ -0,0 +1,4 @@
+/**
+ * Пакет с потоковым выводом поездов, множеств и векторов
+ */
+package apps.render;
\ No newline at end of file
@@ -0,0 +1,248 @@
+package apps.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import apps.trains.Timetable;
+
+/**
+ * Класс описывающий генератор нагрузки для TimetableServer<br>
+ * Измеряет p50/p99 задержки и пропускную способность при возрастающем числе одновременных клиентов.
+ * Пропускная способность и задержки считаются только по успешным ответам: быстрые отказы 503 при перегрузке
+ * учитываются отдельно в failures и не завышают результат
+ */
+public class LoadGenerator
+{
+	/**
+	 * Результат одного прогона нагрузки
+	 */
+	public static class Report
+	{
+		private final int concurrency;
+		private final long requests;
+		private final long failures;
+		private final long nanos;
+		private final long[] latencies;
+		
+		private Report(int concurrency, long failures, long nanos, long[] latencies)
+		{
+			this.concurrency = concurrency;
+			this.requests = latencies.length;
+			this.failures = failures;
+			this.nanos = nanos;
+			this.latencies = latencies;
+			
+			Arrays.sort(this.latencies);
+		}
+		
+		/**
+		 * Количество успешных запросов в секунду
+		 *
+		 * @return Пропускная способность без учёта ответов 5xx и ошибок соединения
+		 */
+		public double getQps()
+		{
+			return requests * 1e9 / nanos;
+		}
+		
+		/**
+		 * Перцентиль задержки успешных запросов
+		 *
+		 * @param percentile Перцентиль от 0 до 100
+		 * @return Задержка в микросекундах
+		 */
+		public double getLatencyMicros(double percentile)
+		{
+			if (latencies.length == 0)
+			{
+				return 0.0;
+			}
+			
+			int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile / 100.0 * latencies.length) - 1);
+			
+			return latencies[Math.max(index, 0)] / 1e3;
+		}
+		
+		/**
+		 * Getter для failures
+		 *
+		 * @return Количество ответов с кодом 5xx или ошибкой соединения
+		 */
+		public long getFailures()
+		{
+			return failures;
+		}
+		
+		/**
+		 * Представление результата в виде строки
+		 *
+		 * @return Результат в формате clients: c, qps: q, p50: x us, p99: y us, failures: f
+		 */
+		@Override
+		public String toString()
+		{
+			return String.format("clients: %d, qps: %.0f, p50: %.1f us, p99: %.1f us, failures: %d",
+					concurrency, getQps(), getLatencyMicros(50), getLatencyMicros(99), failures);
+		}
+	}
+	
+	/**
+	 * Прогон нагрузки на запущенный сервер<br>
+	 * 90% запросов - поиск поездов, 10% - бронирование одного места
+	 *
+	 * @param port              Порт сервера на loopback интерфейсе
+	 * @param destinations      Пункты назначения для запросов
+	 * @param trainCount        Количество поездов в расписании (номера 1..trainCount)
+	 * @param concurrency       Количество одновременных клиентов
+	 * @param requestsPerClient Количество запросов от каждого клиента
+	 * @return Результат прогона
+	 * @throws InterruptedException Прерывание ожидания клиентов
+	 */
+	public static Report run(int port, String[] destinations, int trainCount, int concurrency, int requestsPerClient) throws InterruptedException
+	{
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String base = "http://127.0.0.1:" + port;
+		long[][] latencies = new long[concurrency][requestsPerClient];
+		int[] successes = new int[concurrency];
+		long[] failures = new long[concurrency];
+		List<Thread> threads = new ArrayList<>(concurrency);
+		
+		for (int c = 0; c < concurrency; c++)
+		{
+			int clientIndex = c;
+			
+			threads.add(new Thread(() ->
+			{
+				Random random = new Random(clientIndex);
+				
+				for (int i = 0; i < requestsPerClient; i++)
+				{
+					String path;
+					
+					if (random.nextInt(10) == 0)
+					{
+						path = "/reserve?type=common&number=" + (random.nextInt(trainCount) + 1);
+					}
+					else
+					{
+						path = "/trains?after=" + random.nextInt(24) + "&destination=" +
+								URLEncoder.encode(destinations[random.nextInt(destinations.length)], StandardCharsets.UTF_8);
+					}
+					
+					HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+					long start = System.nanoTime();
+					
+					try
+					{
+						if (client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() >= 500)
+						{
+							failures[clientIndex]++;
+							
+							continue;
+						}
+					}
+					catch (IOException exception)
+					{
+						failures[clientIndex]++;
+						
+						continue;
+					}
+					catch (InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+						
+						return;
+					}
+					
+					latencies[clientIndex][successes[clientIndex]++] = System.nanoTime() - start;
+				}
+			}));
+		}
+		
+		long start = System.nanoTime();
+		
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		
+		long nanos = System.nanoTime() - start;
+		long[] all = new long[Arrays.stream(successes).sum()];
+		int position = 0;
+		long failed = 0;
+		
+		for (int c = 0; c < concurrency; c++)
+		{
+			System.arraycopy(latencies[c], 0, all, position, successes[c]);
+			
+			position += successes[c];
+			failed += failures[c];
+		}
+		
+		return new Report(concurrency, failed, nanos, all);
+	}
+	
+	/**
+	 * Сравнение виртуальных потоков с пулом потоков<br>
+	 * Для каждого способа выполнения запросов число клиентов удваивается от 1 до maxConcurrency,
+	 * результаты и максимальная пропускная способность выводятся на консоль
+	 *
+	 * @param trainCount        Количество поездов в сгенерированном расписании
+	 * @param maxConcurrency    Максимальное количество одновременных клиентов
+	 * @param requestsPerClient Количество запросов от каждого клиента
+	 * @param maxInFlight       Ограничение сервера на количество одновременных запросов
+	 * @throws IOException          Ошибка запуска сервера
+	 * @throws InterruptedException Прерывание ожидания клиентов
+	 */
+	public static void compare(int trainCount, int maxConcurrency, int requestsPerClient, int maxInFlight) throws IOException, InterruptedException
+	{
+		String[] destinations = {"Москва", "Санкт-Петербург", "Екатеринбург", "Новосибирск", "Казань", "Челябинск", "Пермь", "Тюмень"};
+		
+		for (TimetableServer.ExecutorType type : TimetableServer.ExecutorType.values())
+		{
+			if (type == TimetableServer.ExecutorType.VIRTUAL_THREADS && !TimetableServer.isVirtualThreadsSupported())
+			{
+				System.out.println(type + ": не поддерживается данной JVM");
+				
+				continue;
+			}
+			
+			Timetable timetable = Timetable.generate(trainCount, destinations, 42);
+			double maxQps = 0.0;
+			
+			System.out.println(type + ":");
+			
+			try (TimetableServer server = new TimetableServer(timetable, 0, type, maxInFlight))
+			{
+				server.start();
+				
+				run(server.getPort(), destinations, trainCount, 1, Math.min(requestsPerClient, 1000));
+				
+				for (int concurrency = 1; concurrency <= maxConcurrency; concurrency *= 2)
+				{
+					Report report = run(server.getPort(), destinations, trainCount, concurrency, requestsPerClient);
+					
+					maxQps = Math.max(maxQps, report.getQps());
+					
+					System.out.println("\t" + report);
+				}
+				
+				System.out.printf("\tmax qps: %.0f, rejected: %d%n", maxQps, server.getRejected());
+			}
+		}
+	}
+}
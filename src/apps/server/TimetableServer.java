@@ -0,0 +1,463 @@
+package apps.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import apps.trains.Timetable;
+import apps.trains.Train;
+import apps.trains.exceptions.WrongHourFormatException;
+
+/**
+ * Класс описывающий HTTP сервер запросов к расписанию поездов<br>
+ * Сервер слушает только loopback интерфейс и отвечает в формате JSON:<br>
+ * GET /trains?destination=D[&amp;after=H][&amp;common=true] - список поездов<br>
+ * GET /reserve?number=N&amp;type=common|compartment|luxury[&amp;count=C] - бронирование мест<br>
+ * Если количество принятых, но ещё не обработанных запросов превышает maxInFlight,
+ * сервер сразу отвечает 503 вместо постановки запроса в очередь
+ */
+public class TimetableServer implements AutoCloseable
+{
+	/**
+	 * Описание способов выполнения запросов
+	 */
+	public enum ExecutorType
+	{
+		/**
+		 * Отдельный виртуальный поток на каждый запрос (если поддерживается JVM)
+		 */
+		VIRTUAL_THREADS,
+		/**
+		 * Пул платформенных потоков по числу процессоров
+		 */
+		THREAD_POOL
+	}
+	
+	static
+	{
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+		{
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+	
+	private final Timetable timetable;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Semaphore inFlight;
+	private final ThreadLocal<Boolean> overloaded = ThreadLocal.withInitial(() -> false);
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * Проверка поддержки виртуальных потоков текущей JVM
+	 *
+	 * @return true если доступен Executors.newVirtualThreadPerTaskExecutor, false иначе
+	 */
+	public static boolean isVirtualThreadsSupported()
+	{
+		try
+		{
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			
+			return true;
+		}
+		catch (NoSuchMethodException exception)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Конструктор сервера
+	 *
+	 * @param timetable   Расписание поездов
+	 * @param port        Порт на loopback интерфейсе, 0 для выбора свободного порта
+	 * @param type        Способ выполнения запросов
+	 * @param maxInFlight Максимальное количество одновременно обрабатываемых запросов
+	 * @throws IOException Ошибка открытия порта
+	 */
+	public TimetableServer(Timetable timetable, int port, ExecutorType type, int maxInFlight) throws IOException
+	{
+		this.timetable = timetable;
+		this.inFlight = new Semaphore(maxInFlight);
+		
+		ExecutorService delegate = createExecutor(type);
+		
+		executor = delegate;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxInFlight);
+		
+		// Место под запрос занимается до передачи в очередь исполнителя. Без свободного места запрос
+		// выполняется сразу в потоке HttpServer с признаком перегрузки и получает 503, не попадая в очередь
+		server.setExecutor(task ->
+		{
+			if (!inFlight.tryAcquire())
+			{
+				overloaded.set(true);
+				
+				try
+				{
+					task.run();
+				}
+				finally
+				{
+					overloaded.set(false);
+				}
+				
+				return;
+			}
+			
+			try
+			{
+				delegate.execute(() ->
+				{
+					try
+					{
+						task.run();
+					}
+					finally
+					{
+						inFlight.release();
+					}
+				});
+			}
+			catch (RejectedExecutionException exception)
+			{
+				inFlight.release();
+				
+				throw exception;
+			}
+		});
+		
+		server.createContext("/trains", limited(this::handleTrains));
+		server.createContext("/reserve", limited(this::handleReserve));
+	}
+	
+	/**
+	 * Запуск сервера
+	 */
+	public void start()
+	{
+		server.start();
+	}
+	
+	/**
+	 * Порт, на котором слушает сервер
+	 *
+	 * @return Номер порта
+	 */
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Количество запросов, отклонённых из-за превышения maxInFlight
+	 *
+	 * @return Количество отклонённых запросов
+	 */
+	public long getRejected()
+	{
+		return rejected.get();
+	}
+	
+	/**
+	 * Остановка сервера
+	 */
+	@Override
+	public void close()
+	{
+		server.stop(0);
+		executor.shutdown();
+		
+		try
+		{
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static ExecutorService createExecutor(ExecutorType type)
+	{
+		if (type == ExecutorType.VIRTUAL_THREADS)
+		{
+			try
+			{
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				
+				return (ExecutorService) factory.invoke(null);
+			}
+			catch (ReflectiveOperationException exception)
+			{
+				throw new UnsupportedOperationException("Виртуальные потоки не поддерживаются данной JVM", exception);
+			}
+		}
+		
+		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+	
+	private HttpHandler limited(HttpHandler handler)
+	{
+		return exchange ->
+		{
+			try (exchange)
+			{
+				if (overloaded.get())
+				{
+					rejected.incrementAndGet();
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					
+					send(exchange, 503, error("Сервер перегружен"));
+				}
+				else
+				{
+					handler.handle(exchange);
+				}
+			}
+		};
+	}
+	
+	private void handleTrains(HttpExchange exchange) throws IOException
+	{
+		Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+		String destination = parameters.get("destination");
+		
+		if (destination == null)
+		{
+			send(exchange, 400, error("Не задан параметр destination"));
+			
+			return;
+		}
+		
+		List<Train> trains;
+		
+		try
+		{
+			if (parameters.containsKey("after"))
+			{
+				trains = timetable.getTrainListByDestinationAndAfterHour(destination, Integer.parseInt(parameters.get("after")));
+				
+				if (Boolean.parseBoolean(parameters.get("common")))
+				{
+					trains.removeIf(train -> train.getSeats().get(Train.SeatType.COMMON.ordinal()) == 0);
+				}
+			}
+			else if (Boolean.parseBoolean(parameters.get("common")))
+			{
+				trains = timetable.getTrainListByDestinationAndCommonSeatType(destination);
+			}
+			else
+			{
+				trains = timetable.getTrainListByDestination(destination);
+			}
+		}
+		catch (WrongHourFormatException | NumberFormatException exception)
+		{
+			send(exchange, 400, error(WrongHourFormatException.STACKLESS.getMessage()));
+			
+			return;
+		}
+		
+		StringBuilder builder = new StringBuilder(64 * trains.size() + 2);
+		
+		builder.append('[');
+		
+		for (int i = 0; i < trains.size(); i++)
+		{
+			appendTrain(builder, trains.get(i));
+			
+			if (i + 1 != trains.size())
+			{
+				builder.append(',');
+			}
+		}
+		
+		builder.append(']');
+		
+		send(exchange, 200, builder.toString());
+	}
+	
+	private void handleReserve(HttpExchange exchange) throws IOException
+	{
+		Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+		Train train = timetable.getTrain(parameters.getOrDefault("number", ""));
+		
+		if (train == null)
+		{
+			send(exchange, 404, error("Поезд не найден"));
+			
+			return;
+		}
+		
+		Train.SeatType type;
+		int count;
+		
+		try
+		{
+			type = Train.SeatType.valueOf(parameters.getOrDefault("type", "").toUpperCase(Locale.ROOT));
+			count = Integer.parseInt(parameters.getOrDefault("count", "1"));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			send(exchange, 400, error("Неверный тип или количество мест"));
+			
+			return;
+		}
+		
+		boolean reserved;
+		List<Integer> seats;
+		
+		// Остаток мест снимается под той же блокировкой, что и бронирование, поэтому ответ
+		// показывает состояние сразу после этого бронирования
+		synchronized (train)
+		{
+			reserved = train.reserveSeats(type, count);
+			seats = List.copyOf(train.getSeats());
+		}
+		
+		StringBuilder builder = new StringBuilder(96);
+		
+		builder.append("{\"reserved\":").append(reserved).append(",\"train\":");
+		appendTrain(builder, train, seats);
+		builder.append('}');
+		
+		send(exchange, reserved ? 200 : 409, builder.toString());
+	}
+	
+	private static void appendTrain(StringBuilder builder, Train train)
+	{
+		appendTrain(builder, train, train.getSeats());
+	}
+	
+	private static void appendTrain(StringBuilder builder, Train train, List<Integer> seats)
+	{
+		Calendar departureTime = train.getDepartureTime();
+		
+		builder.append("{\"number\":");
+		appendString(builder, train.getNumber());
+		builder.append(",\"destination\":");
+		appendString(builder, train.getDestination());
+		builder.append(",\"departure\":\"");
+		
+		if (departureTime != null)
+		{
+			int hour = departureTime.get(Calendar.HOUR_OF_DAY);
+			int minute = departureTime.get(Calendar.MINUTE);
+			
+			builder.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10)).append(':')
+					.append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10));
+		}
+		
+		builder.append("\",\"seats\":[");
+		
+		for (int i = 0; i < seats.size(); i++)
+		{
+			builder.append(seats.get(i));
+			
+			if (i + 1 != seats.size())
+			{
+				builder.append(',');
+			}
+		}
+		
+		builder.append("]}");
+	}
+	
+	private static void appendString(StringBuilder builder, String value)
+	{
+		if (value == null)
+		{
+			builder.append("null");
+			
+			return;
+		}
+		
+		builder.append('"');
+		
+		for (int i = 0; i < value.length(); i++)
+		{
+			char character = value.charAt(i);
+			
+			if (character == '"' || character == '\\')
+			{
+				builder.append('\\').append(character);
+			}
+			else if (character < 0x20)
+			{
+				builder.append(String.format("\\u%04x", (int) character));
+			}
+			else
+			{
+				builder.append(character);
+			}
+		}
+		
+		builder.append('"');
+	}
+	
+	private static String error(String message)
+	{
+		StringBuilder builder = new StringBuilder("{\"error\":");
+		
+		appendString(builder, message);
+		
+		return builder.append('}').toString();
+	}
+	
+	private static Map<String, String> parseQuery(String query)
+	{
+		Map<String, String> result = new HashMap<>();
+		
+		if (query == null)
+		{
+			return result;
+		}
+		
+		for (String pair : query.split("&"))
+		{
+			int separator = pair.indexOf('=');
+			
+			if (separator > 0)
+			{
+				result.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+			}
+		}
+		
+		return result;
+	}
+	
+	private static void send(HttpExchange exchange, int code, String json) throws IOException
+	{
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, body.length);
+		
+		try (OutputStream output = exchange.getResponseBody())
+		{
+			output.write(body);
+		}
+	}
+}
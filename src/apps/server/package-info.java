@@ -0,0 +1,4 @@
+/**
+ * Пакет с сервером запросов к расписанию поездов
+ */
+package apps.server;
\ No newline at end of file
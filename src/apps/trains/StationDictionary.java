@@ -0,0 +1,308 @@
+package apps.trains;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс описывающий словарь пунктов назначения<br>
+ * Каждому пункту назначения ставится в соответствие плотный целочисленный идентификатор,
+ * поэтому поезда хранят и сравнивают идентификаторы вместо строк.<br>
+ * Названия сравниваются в нормализованном виде (Unicode NFKC, без учёта регистра и крайних пробелов).<br>
+ * Индекс поиска по префиксу состоит из отсортированной части и хвоста новых названий, который просматривается
+ * перебором и сливается с отсортированной частью, когда становится длиннее квадратного корня из её размера
+ */
+public class StationDictionary
+{
+	/**
+	 * Идентификатор отсутствующего пункта назначения
+	 */
+	public static final int NO_STATION = -1;
+	
+	private static final StationDictionary SHARED = new StationDictionary();
+	
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private volatile String[] names = new String[16];
+	private volatile String[] keys = new String[16];
+	private volatile int size;
+	private volatile PrefixIndex prefixIndex = new PrefixIndex(new String[0], new int[0]);
+	
+	/**
+	 * Общий словарь, используемый классом Train
+	 *
+	 * @return Общий словарь пунктов назначения
+	 */
+	public static StationDictionary getShared()
+	{
+		return SHARED;
+	}
+	
+	/**
+	 * Нормализация названия пункта назначения для сравнения
+	 *
+	 * @param name Название пункта назначения
+	 * @return Название в форме NFKC, в нижнем регистре и без крайних пробелов
+	 */
+	public static String normalize(String name)
+	{
+		return Normalizer.normalize(name.strip(), Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * Получение идентификатора пункта назначения с регистрацией нового названия
+	 *
+	 * @param name Название пункта назначения
+	 * @return Идентификатор пункта назначения, NO_STATION для null
+	 */
+	public int intern(String name)
+	{
+		if (name == null)
+		{
+			return NO_STATION;
+		}
+		
+		String key = normalize(name);
+		Integer id = ids.get(key);
+		
+		if (id != null)
+		{
+			return id;
+		}
+		
+		synchronized (this)
+		{
+			id = ids.get(key);
+			
+			if (id != null)
+			{
+				return id;
+			}
+			
+			if (size == names.length)
+			{
+				names = Arrays.copyOf(names, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+			
+			names[size] = name;
+			keys[size] = key;
+			id = size;
+			
+			// size публикуется раньше ids, поэтому идентификатор, найденный через ids без блокировки,
+			// всегда принимается getName
+			size = id + 1;
+			
+			ids.put(key, id);
+		}
+		
+		return id;
+	}
+	
+	/**
+	 * Поиск идентификатора пункта назначения без регистрации
+	 *
+	 * @param name Название пункта назначения
+	 * @return Идентификатор пункта назначения, NO_STATION если название не зарегистрировано
+	 */
+	public int lookup(String name)
+	{
+		if (name == null)
+		{
+			return NO_STATION;
+		}
+		
+		Integer id = ids.get(normalize(name));
+		
+		return id == null ? NO_STATION : id;
+	}
+	
+	/**
+	 * Название пункта назначения по идентификатору
+	 *
+	 * @param id Идентификатор пункта назначения
+	 * @return Название, под которым пункт назначения был зарегистрирован впервые, null для NO_STATION
+	 * @throws IndexOutOfBoundsException Идентификатор не зарегистрирован
+	 */
+	public String getName(int id) throws IndexOutOfBoundsException
+	{
+		if (id == NO_STATION)
+		{
+			return null;
+		}
+		
+		int count = size;
+		
+		if (id < 0 || id >= count)
+		{
+			throw new IndexOutOfBoundsException(id);
+		}
+		
+		return names[id];
+	}
+	
+	/**
+	 * Количество зарегистрированных пунктов назначения
+	 *
+	 * @return Количество пунктов назначения
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Поиск пунктов назначения по началу названия (для автодополнения)
+	 *
+	 * @param prefix Начало названия
+	 * @param limit  Максимальное количество результатов
+	 * @return Названия пунктов назначения, начинающиеся с prefix, в лексикографическом порядке
+	 */
+	public List<String> findByPrefix(String prefix, int limit)
+	{
+		List<String> result = new ArrayList<>();
+		
+		for (int id : findIdsByPrefix(prefix, limit))
+		{
+			result.add(names[id]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Поиск идентификаторов пунктов назначения по началу названия
+	 *
+	 * @param prefix Начало названия
+	 * @param limit  Максимальное количество результатов
+	 * @return Идентификаторы пунктов назначения, названия которых начинаются с prefix
+	 */
+	public int[] findIdsByPrefix(String prefix, int limit)
+	{
+		// Индекс читается раньше size и keys, поэтому он не содержит идентификаторов за пределами keys
+		PrefixIndex index = prefixIndex;
+		int count = size;
+		String[] all = keys;
+		
+		if (count - index.ids.length > Math.max(64, (int) Math.sqrt(index.ids.length)))
+		{
+			synchronized (this)
+			{
+				count = size;
+				all = keys;
+				
+				if (prefixIndex.ids.length < count)
+				{
+					prefixIndex = prefixIndex.merge(all, count);
+				}
+				
+				index = prefixIndex;
+			}
+		}
+		
+		String key = normalize(prefix);
+		int from = Arrays.binarySearch(index.keys, key);
+		
+		if (from < 0)
+		{
+			from = -from - 1;
+		}
+		
+		int to = from;
+		
+		while (to < index.keys.length && to - from < limit && index.keys[to].startsWith(key))
+		{
+			to++;
+		}
+		
+		List<Integer> tail = new ArrayList<>();
+		
+		for (int id = index.ids.length; id < count; id++)
+		{
+			if (all[id].startsWith(key))
+			{
+				tail.add(id);
+			}
+		}
+		
+		if (tail.isEmpty())
+		{
+			return Arrays.copyOfRange(index.ids, from, to);
+		}
+		
+		for (int i = from; i < to; i++)
+		{
+			tail.add(index.ids[i]);
+		}
+		
+		String[] sorted = all;
+		
+		tail.sort((first, second) -> sorted[first].compareTo(sorted[second]));
+		
+		int[] result = new int[Math.min(limit, tail.size())];
+		
+		for (int i = 0; i < result.length; i++)
+		{
+			result[i] = tail.get(i);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Отсортированный массив нормализованных названий с идентификаторами от 0 до ids.length - 1
+	 */
+	private static class PrefixIndex
+	{
+		private final String[] keys;
+		private final int[] ids;
+		
+		private PrefixIndex(String[] keys, int[] ids)
+		{
+			this.keys = keys;
+			this.ids = ids;
+		}
+		
+		/**
+		 * Слияние с хвостом названий: сортируется только хвост, затем два отсортированных массива сливаются
+		 *
+		 * @param all   Нормализованные названия по идентификаторам
+		 * @param count Количество названий
+		 * @return Индекс названий с идентификаторами от 0 до count - 1
+		 */
+		private PrefixIndex merge(String[] all, int count)
+		{
+			Integer[] added = new Integer[count - ids.length];
+			
+			for (int i = 0; i < added.length; i++)
+			{
+				added[i] = ids.length + i;
+			}
+			
+			Arrays.sort(added, (first, second) -> all[first].compareTo(all[second]));
+			
+			String[] mergedKeys = new String[count];
+			int[] mergedIds = new int[count];
+			int left = 0;
+			int right = 0;
+			
+			for (int i = 0; i < count; i++)
+			{
+				if (right == added.length || left < ids.length && keys[left].compareTo(all[added[right]]) <= 0)
+				{
+					mergedKeys[i] = keys[left];
+					mergedIds[i] = ids[left++];
+				}
+				else
+				{
+					mergedKeys[i] = all[added[right]];
+					mergedIds[i] = added[right++];
+				}
+			}
+			
+			return new PrefixIndex(mergedKeys, mergedIds);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package apps.trains;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import apps.trains.exceptions.WrongHourFormatException;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий расписание поездов, доступное из нескольких потоков<br>
+ * Строка расписания имеет формат number;destination;HH:mm;common;compartment;luxury.
+ * Изменения выполняются над обычным списком под блокировкой объекта, читатели получают неизменяемый снимок,
+ * который пересобирается один раз при первом чтении после изменений
+ */
+public class Timetable
+{
+	private final List<Train> trains = new ArrayList<>();
+	private final ConcurrentHashMap<String, Train> trainsByNumber = new ConcurrentHashMap<>();
+	private volatile List<Train> snapshot = List.of();
+	
+	/**
+	 * Загрузка расписания из файла
+	 *
+	 * @param path Путь к файлу расписания в кодировке UTF-8
+	 * @return Расписание
+	 * @throws IOException                   Ошибка чтения файла
+	 * @throws WrongTimetableFormatException Неверный формат строки расписания
+	 */
+	public static Timetable load(Path path) throws IOException, WrongTimetableFormatException
+	{
+		Timetable result = new Timetable();
+		
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+		{
+			String line;
+			
+			while ((line = reader.readLine()) != null)
+			{
+				if (!line.isBlank() && !line.startsWith("#"))
+				{
+					result.add(parseTrain(line));
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Создание случайного расписания
+	 *
+	 * @param count        Количество поездов
+	 * @param destinations Пункты назначения
+	 * @param seed         Начальное значение генератора случайных чисел
+	 * @return Расписание из count поездов
+	 */
+	public static Timetable generate(int count, String[] destinations, long seed)
+	{
+		Timetable result = new Timetable();
+		Random random = new Random(seed);
+		Calendar departureTime = Calendar.getInstance();
+		
+		for (int i = 0; i < count; i++)
+		{
+			departureTime.set(Calendar.HOUR_OF_DAY, random.nextInt(24));
+			departureTime.set(Calendar.MINUTE, random.nextInt(60));
+			
+			result.add(new Train(destinations[random.nextInt(destinations.length)], Integer.toString(i + 1), departureTime,
+					random.nextInt(200), random.nextInt(100), random.nextInt(20)));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Разбор строки расписания
+	 *
+	 * @param line Строка в формате number;destination;HH:mm;common;compartment;luxury
+	 * @return Поезд
+	 * @throws WrongTimetableFormatException Неверный формат строки
+	 */
+	public static Train parseTrain(String line) throws WrongTimetableFormatException
+	{
+		String[] fields = line.split(";");
+		
+		if (fields.length != 6)
+		{
+			throw new WrongTimetableFormatException(line);
+		}
+		
+		try
+		{
+			String[] time = fields[2].strip().split(":");
+			
+			if (time.length != 2)
+			{
+				throw new WrongTimetableFormatException(line);
+			}
+			
+			int hour = Integer.parseInt(time[0]);
+			int minute = Integer.parseInt(time[1]);
+			
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59)
+			{
+				throw new WrongTimetableFormatException(line);
+			}
+			
+			Calendar departureTime = Calendar.getInstance();
+			
+			departureTime.set(Calendar.HOUR_OF_DAY, hour);
+			departureTime.set(Calendar.MINUTE, minute);
+			departureTime.set(Calendar.SECOND, 0);
+			departureTime.set(Calendar.MILLISECOND, 0);
+			
+			return new Train(fields[1].strip(), fields[0].strip(), departureTime,
+					Integer.parseInt(fields[3].strip()), Integer.parseInt(fields[4].strip()), Integer.parseInt(fields[5].strip()));
+		}
+		catch (NumberFormatException exception)
+		{
+			throw new WrongTimetableFormatException(line);
+		}
+	}
+	
+	/**
+	 * Представление поезда в виде строки расписания
+	 *
+	 * @param train Поезд
+	 * @return Строка в формате number;destination;HH:mm;common;compartment;luxury
+	 */
+	public static String formatTrain(Train train)
+	{
+		List<Integer> seats = train.getSeats();
+		
+		return String.format("%s;%s;%02d:%02d;%d;%d;%d", train.getNumber(), train.getDestination(),
+				train.getDepartureTime().get(Calendar.HOUR_OF_DAY), train.getDepartureTime().get(Calendar.MINUTE),
+				seats.get(0), seats.get(1), seats.get(2));
+	}
+	
+	/**
+	 * Добавление поезда в расписание<br>
+	 * Поезд с тем же номером заменяется
+	 *
+	 * @param train Поезд для добавления
+	 */
+	public synchronized void add(Train train)
+	{
+		Train previous = trainsByNumber.put(train.getNumber(), train);
+		
+		if (previous != null)
+		{
+			trains.remove(previous);
+		}
+		
+		trains.add(train);
+		snapshot = null;
+	}
+	
+	/**
+	 * Удаление поезда из расписания
+	 *
+	 * @param number Номер поезда
+	 * @return Удалённый поезд, null если поезда нет в расписании
+	 */
+	public synchronized Train remove(String number)
+	{
+		Train train = trainsByNumber.remove(number);
+		
+		if (train != null)
+		{
+			trains.remove(train);
+			snapshot = null;
+		}
+		
+		return train;
+	}
+	
+	/**
+	 * Удаление всех поездов, удовлетворяющих условию, за один проход по списку
+	 *
+	 * @param filter Условие удаления
+	 * @return Удалённые поезда
+	 */
+	public synchronized List<Train> removeIf(Predicate<Train> filter)
+	{
+		List<Train> result = new ArrayList<>();
+		
+		trains.removeIf(train ->
+		{
+			if (!filter.test(train))
+			{
+				return false;
+			}
+			
+			trainsByNumber.remove(train.getNumber());
+			result.add(train);
+			
+			return true;
+		});
+		
+		if (!result.isEmpty())
+		{
+			snapshot = null;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Поиск поезда по номеру
+	 *
+	 * @param number Номер поезда
+	 * @return Поезд, null если поезда нет в расписании
+	 */
+	public Train getTrain(String number)
+	{
+		return trainsByNumber.get(number);
+	}
+	
+	/**
+	 * Getter для trains
+	 *
+	 * @return Неизменяемый снимок списка поездов
+	 */
+	public List<Train> getTrains()
+	{
+		List<Train> result = snapshot;
+		
+		if (result != null)
+		{
+			return result;
+		}
+		
+		synchronized (this)
+		{
+			if (snapshot == null)
+			{
+				snapshot = List.copyOf(trains);
+			}
+			
+			return snapshot;
+		}
+	}
+	
+	/**
+	 * Количество поездов в расписании
+	 *
+	 * @return Количество поездов
+	 */
+	public int size()
+	{
+		return getTrains().size();
+	}
+	
+	/**
+	 * Бронирование мест в поезде
+	 *
+	 * @param number Номер поезда
+	 * @param type   Тип мест
+	 * @param count  Количество мест
+	 * @return true в случае успешного бронирования, false если поезда нет или мест недостаточно
+	 */
+	public boolean reserve(String number, Train.SeatType type, int count)
+	{
+		Train train = trainsByNumber.get(number);
+		
+		return train != null && train.reserveSeats(type, count);
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения
+	 *
+	 * @param destination Пункт назначения
+	 * @return Список поездов, следующих до destination
+	 */
+	public List<Train> getTrainListByDestination(String destination)
+	{
+		return Train.getTrainListByDestination(getTrains(), destination);
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения и отправляющихся после заданного часа
+	 *
+	 * @param destination Пункт назначения
+	 * @param hour        Время для сравнения
+	 * @return Список поездов, следующих до destination после hour
+	 * @throws WrongHourFormatException Неверный формат hour
+	 */
+	public List<Train> getTrainListByDestinationAndAfterHour(String destination, int hour) throws WrongHourFormatException
+	{
+		return Train.getTrainListByDestinationAndAfterHour(getTrains(), destination, hour);
+	}
+	
+	/**
+	 * Пакетный поиск поездов по пунктам назначения и часам без исключений для отдельных запросов
+	 *
+	 * @param destinations Пункты назначения запросов
+	 * @param hours        Часы запросов
+	 * @param results      Список, в который для каждого запроса добавляется список поездов (пустой при статусе не OK)
+	 * @return Статус каждого запроса
+	 * @throws Exception Разные размеры массивов
+	 */
+	public TrainStatus[] getTrainListByDestinationAndAfterHour(String[] destinations, int[] hours, List<List<Train>> results) throws Exception
+	{
+		return Train.getTrainListByDestinationAndAfterHour(getTrains(), destinations, hours, results);
+	}
+	
+	/**
+	 * Список поездов, отправляющихся до заданного пункта назначения и имеющих общие места
+	 *
+	 * @param destination Пункт назначения
+	 * @return Список поездов, следующих до destination и имеющих общие места
+	 */
+	public List<Train> getTrainListByDestinationAndCommonSeatType(String destination)
+	{
+		return Train.getTrainListByDestinationAndCommonSeatType(getTrains(), destination);
+	}
+}
@@ -33,10 +33,10 @@ public class Train
 		LUXURY
 	}
 	
-	private String destination;
+	private int destination = StationDictionary.NO_STATION;
 	private String number;
 	private Calendar departureTime;
-	private List<Integer> seats;
+	private volatile List<Integer> seats;
 	
 	/**
 	 * Создание массива поездов
@@ -85,7 +85,26 @@ public class Train
 	 */
 	public static List<Train> getTrainListByDestination(List<Train> trains, String destination)
 	{
-		return trains.stream().filter(train -> train.getDestination().equals(destination)).collect(Collectors.toList());
+		int id = StationDictionary.getShared().lookup(destination);
+		
+		if (id == StationDictionary.NO_STATION)
+		{
+			return new ArrayList<>();
+		}
+		
+		return getTrainListByDestination(trains, id);
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения
+	 *
+	 * @param trains        Список поездов
+	 * @param destinationId Идентификатор пункта назначения в StationDictionary
+	 * @return Список поездов, следующих до destinationId
+	 */
+	public static List<Train> getTrainListByDestination(List<Train> trains, int destinationId)
+	{
+		return trains.stream().filter(train -> train.destination == destinationId).collect(Collectors.toList());
 	}
 	
 	/**
@@ -98,22 +117,152 @@ public class Train
 	 * @throws WrongHourFormatException Неверный формат hour
 	 */
 	public static List<Train> getTrainListByDestinationAndAfterHour(List<Train> trains, String destination, int hour) throws WrongHourFormatException
+	{
+		int id = StationDictionary.getShared().lookup(destination);
+		
+		if (id == StationDictionary.NO_STATION)
+		{
+			if (hour < 0 || hour > 23)
+			{
+				throw WrongHourFormatException.STACKLESS;
+			}
+			
+			return new ArrayList<>();
+		}
+		
+		return getTrainListByDestinationAndAfterHour(trains, id, hour);
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения и отправляющихся после заданного часа
+	 *
+	 * @param trains        Список поездов
+	 * @param destinationId Идентификатор пункта назначения в StationDictionary
+	 * @param hour          Время для сравнения
+	 * @return Список поездов, следующих до destinationId после hour
+	 * @throws WrongHourFormatException Неверный формат hour
+	 */
+	public static List<Train> getTrainListByDestinationAndAfterHour(List<Train> trains, int destinationId, int hour) throws WrongHourFormatException
 	{
 		if (hour >= 0 && hour <= 23)
 		{
 			return trains.stream().filter
 					(
 							train ->
-									train.getDestination().equals(destination) &&
+									train.destination == destinationId &&
 											train.getDepartureTime().get(Calendar.HOUR_OF_DAY) > hour
 					).collect(Collectors.toList());
 		}
 		else
 		{
-			throw new WrongHourFormatException();
+			throw WrongHourFormatException.STACKLESS;
 		}
 	}
 	
+	/**
+	 * Пакетный поиск поездов по пунктам назначения и часам без исключений для отдельных запросов<br>
+	 * Все запросы обрабатываются за один проход по списку поездов
+	 *
+	 * @param trains       Список поездов
+	 * @param destinations Пункты назначения запросов
+	 * @param hours        Часы запросов
+	 * @param results      Список, в который для каждого запроса добавляется список поездов (пустой при статусе не OK)
+	 * @return Статус каждого запроса
+	 * @throws Exception Разные размеры массивов
+	 */
+	public static TrainStatus[] getTrainListByDestinationAndAfterHour(List<Train> trains, String[] destinations, int[] hours, List<List<Train>> results) throws Exception
+	{
+		if (destinations.length != hours.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+		
+		StationDictionary dictionary = StationDictionary.getShared();
+		TrainStatus[] statuses = new TrainStatus[hours.length];
+		int[] heads = new int[dictionary.size()];
+		int[] next = new int[hours.length];
+		List<List<Train>> lists = new ArrayList<>(hours.length);
+		
+		Arrays.fill(heads, -1);
+		
+		for (int i = hours.length - 1; i >= 0; i--)
+		{
+			statuses[i] = destinations[i] == null ? TrainStatus.MISSING : hours[i] < 0 || hours[i] > 23 ? TrainStatus.WRONG_HOUR : TrainStatus.OK;
+			
+			int id = statuses[i] == TrainStatus.OK ? dictionary.lookup(destinations[i]) : StationDictionary.NO_STATION;
+			
+			if (id != StationDictionary.NO_STATION && id < heads.length)
+			{
+				next[i] = heads[id];
+				heads[id] = i;
+			}
+		}
+		
+		for (int i = 0; i < hours.length; i++)
+		{
+			lists.add(new ArrayList<>());
+		}
+		
+		for (Train train : trains)
+		{
+			if (train.destination < 0 || train.destination >= heads.length || heads[train.destination] < 0)
+			{
+				continue;
+			}
+			
+			int hour = train.getDepartureTime().get(Calendar.HOUR_OF_DAY);
+			
+			for (int query = heads[train.destination]; query >= 0; query = next[query])
+			{
+				if (hour > hours[query])
+				{
+					lists.get(query).add(train);
+				}
+			}
+		}
+		
+		results.addAll(lists);
+		
+		return statuses;
+	}
+	
+	/**
+	 * Пакетное изменение количества мест без исключений для отдельных поездов
+	 *
+	 * @param trains Поезда
+	 * @param seats  Количество мест каждого типа для каждого поезда
+	 * @return Статус каждого поезда, при статусе не OK места поезда не изменяются
+	 * @throws Exception Разные размеры массивов
+	 */
+	public static TrainStatus[] setSeats(Train[] trains, int[][] seats) throws Exception
+	{
+		if (trains.length != seats.length)
+		{
+			throw new Exception("Размеры массивов должны быть одинаковы");
+		}
+		
+		TrainStatus[] statuses = new TrainStatus[trains.length];
+		
+		for (int i = 0; i < trains.length; i++)
+		{
+			if (trains[i] == null || seats[i] == null)
+			{
+				statuses[i] = TrainStatus.MISSING;
+			}
+			else if (seats[i].length != SeatType.values().length)
+			{
+				statuses[i] = TrainStatus.WRONG_SEATS;
+			}
+			else
+			{
+				trains[i].assignSeats(seats[i]);
+				statuses[i] = TrainStatus.OK;
+			}
+		}
+		
+		return statuses;
+	}
+	
 	/**
 	 * Список поездов, отправляющихся до заданного пункта назначения и имеющих общие места
 	 *
@@ -122,11 +271,30 @@ public class Train
 	 * @return Список поездов, следующих до destination и seats.get(SeatType.COMMON.ordinal()) != 0
 	 */
 	public static List<Train> getTrainListByDestinationAndCommonSeatType(List<Train> trains, String destination)
+	{
+		int id = StationDictionary.getShared().lookup(destination);
+		
+		if (id == StationDictionary.NO_STATION)
+		{
+			return new ArrayList<>();
+		}
+		
+		return getTrainListByDestinationAndCommonSeatType(trains, id);
+	}
+	
+	/**
+	 * Список поездов, отправляющихся до заданного пункта назначения и имеющих общие места
+	 *
+	 * @param trains        Список поездов
+	 * @param destinationId Идентификатор пункта назначения в StationDictionary
+	 * @return Список поездов, следующих до destinationId и seats.get(SeatType.COMMON.ordinal()) != 0
+	 */
+	public static List<Train> getTrainListByDestinationAndCommonSeatType(List<Train> trains, int destinationId)
 	{
 		return trains.stream().filter
 				(
 						train ->
-								train.getDestination().equals(destination) &&
+								train.destination == destinationId &&
 										train.getSeats().get(SeatType.COMMON.ordinal()) != 0
 				).collect(Collectors.toList());
 	}
@@ -143,7 +311,7 @@ public class Train
 	 */
 	public Train(String destination, String number, Calendar departureTime, int commonSeats, int compartmentSeats, int luxurySeats)
 	{
-		this.destination = destination;
+		this.destination = StationDictionary.getShared().intern(destination);
 		this.number = number;
 		this.departureTime = (Calendar) departureTime.clone();
 		
@@ -184,13 +352,15 @@ public class Train
 	}
 	
 	/**
-	 * Setter для destination
+	 * Setter для destination<br>
+	 * Сохраняется идентификатор пункта назначения в StationDictionary, а не сама строка:
+	 * названия, совпадающие после нормализации, считаются одним пунктом назначения
 	 *
 	 * @param destination Новое значение destination
 	 */
 	public void setDestination(String destination)
 	{
-		this.destination = destination;
+		this.destination = StationDictionary.getShared().intern(destination);
 	}
 	
 	/**
@@ -209,21 +379,89 @@ public class Train
 	 * @param seats Новое значение seats
 	 * @throws WrongSeatsTypeException Неверный формат посадочных мест
 	 */
-	public void setSeats(List<Integer> seats) throws WrongSeatsTypeException
+	public synchronized void setSeats(List<Integer> seats) throws WrongSeatsTypeException
 	{
 		if (seats.size() != SeatType.values().length)
 		{
-			throw new WrongSeatsTypeException();
+			throw WrongSeatsTypeException.STACKLESS;
+		}
+		
+		// Список заполняется до публикации, поэтому чтение без блокировки не видит его пустым
+		this.seats = new ArrayList<>(seats);
+	}
+	
+	private synchronized void assignSeats(int[] values)
+	{
+		List<Integer> result = new ArrayList<>(values.length);
+		
+		for (int value : values)
+		{
+			result.add(value);
+		}
+		
+		seats = result;
+	}
+	
+	/**
+	 * Бронирование мест заданного типа<br>
+	 * Проверка и уменьшение количества мест выполняются атомарно
+	 *
+	 * @param type  Тип мест
+	 * @param count Количество мест для бронирования
+	 * @return true в случае успешного бронирования, false если свободных мест недостаточно
+	 */
+	public synchronized boolean reserveSeats(SeatType type, int count)
+	{
+		int free = seats.get(type.ordinal());
+		
+		if (count <= 0 || free < count)
+		{
+			return false;
 		}
 		
-		this.seats = new ArrayList<>(SeatType.values().length);
+		seats.set(type.ordinal(), free - count);
 		
-		this.seats.addAll(seats);
+		return true;
+	}
+	
+	/**
+	 * Бронирование мест нескольких типов одной операцией<br>
+	 * Места бронируются только если свободных мест достаточно для всех типов сразу
+	 *
+	 * @param counts Количество мест для бронирования по типам в порядке SeatType
+	 * @return true в случае успешного бронирования, false если мест недостаточно хотя бы одного типа
+	 * @throws WrongSeatsTypeException Размер counts не совпадает с количеством типов мест
+	 */
+	public synchronized boolean reserveSeats(int[] counts) throws WrongSeatsTypeException
+	{
+		if (counts.length != SeatType.values().length)
+		{
+			throw WrongSeatsTypeException.STACKLESS;
+		}
+		
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] < 0 || seats.get(i) < counts[i])
+			{
+				return false;
+			}
+		}
+		
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] > 0)
+			{
+				seats.set(i, seats.get(i) - counts[i]);
+			}
+		}
+		
+		return true;
 	}
 	
 	/**
 	 * Getter для seats<br>
-	 * List - ArrayList
+	 * List - ArrayList<br>
+	 * Без блокировки поезда значения могут устареть, проверка и изменение мест выполняются под его блокировкой
 	 *
 	 * @return seats
 	 */
@@ -243,11 +481,23 @@ public class Train
 	}
 	
 	/**
-	 * Getter для destination
+	 * Getter для destination<br>
+	 * Возвращается название, под которым пункт назначения был впервые зарегистрирован в StationDictionary,
+	 * поэтому оно может отличаться от строки, переданной в setDestination, регистром, пробелами или формой Unicode
 	 *
 	 * @return destination
 	 */
 	public String getDestination()
+	{
+		return StationDictionary.getShared().getName(destination);
+	}
+	
+	/**
+	 * Getter для идентификатора destination в StationDictionary
+	 *
+	 * @return Идентификатор destination, StationDictionary.NO_STATION если пункт назначения не задан
+	 */
+	public int getDestinationId()
 	{
 		return destination;
 	}
@@ -279,7 +529,7 @@ public class Train
 		SeatType[] seatsType = SeatType.values();
 		
 		builder.append(number).append('\n').
-				append(destination).append(": ").append(departureTime.getTime()).append('\n');
+				append(getDestination()).append(": ").append(departureTime.getTime()).append('\n');
 		
 		for (int i = 0; i < seats.size(); i++)
 		{
@@ -0,0 +1,28 @@
+package apps.trains;
+
+/**
+ * Перечисление результатов поэлементных операций над поездами и запросами<br>
+ * Пакетные операции Train и Timetable возвращают статус для каждого элемента вместо исключения
+ */
+public enum TrainStatus
+{
+	/**
+	 * Операция выполнена
+	 */
+	OK,
+	
+	/**
+	 * Поезд или аргумент не задан (null)
+	 */
+	MISSING,
+	
+	/**
+	 * Неверный формат часов, соответствует WrongHourFormatException
+	 */
+	WRONG_HOUR,
+	
+	/**
+	 * Неверный формат посадочных мест, соответствует WrongSeatsTypeException
+	 */
+	WRONG_SEATS
+}
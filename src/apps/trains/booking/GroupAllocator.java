@@ -0,0 +1,286 @@
+package apps.trains.booking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import apps.trains.Train;
+import apps.trains.exceptions.WrongSeatsTypeException;
+
+/**
+ * Класс описывающий распределение групповых заявок по списку поездов-кандидатов<br>
+ * Заявка размещается в местах первого подходящего типа из своего списка предпочтений, для каждого типа
+ * поезда просматриваются в порядке списка кандидатов (например, результата getTrainListByDestinationAndAfterHour).<br>
+ * Распределение выполняется раундами: по снимку свободных мест, прочитанному без блокировок и только для
+ * просмотренных поездов, строится план, затем все заявки одного поезда фиксируются одной операцией
+ * Train.reserveSeats(int[]) под блокировкой поезда. Блокируются только поезда, получившие заявки. Если снимок устарел
+ * или другой поток успел занять места, заявки этого поезда бронируются по одной, а не поместившиеся переходят
+ * к следующему варианту в новом раунде
+ */
+public class GroupAllocator
+{
+	private static final int TYPES = Train.SeatType.values().length;
+	
+	private final List<Train> candidates;
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	
+	/**
+	 * Конструктор распределителя
+	 *
+	 * @param candidates Поезда-кандидаты в порядке предпочтения
+	 */
+	public GroupAllocator(List<Train> candidates)
+	{
+		this.candidates = new ArrayList<>(candidates);
+	}
+	
+	/**
+	 * Распределение пакета заявок<br>
+	 * Каждая заявка либо полностью размещается в одном поезде, либо не размещается
+	 *
+	 * @param requests Заявки в порядке приоритета
+	 * @return Результаты распределения в порядке заявок
+	 */
+	public List<Allocation> allocate(List<GroupRequest> requests)
+	{
+		int trainCount = candidates.size();
+		Allocation[] result = new Allocation[requests.size()];
+		int[] options = new int[requests.size()];
+		int[] pending = new int[requests.size()];
+		int pendingCount = requests.size();
+		int[][] free = new int[trainCount][TYPES];
+		int[] snapshotRound = new int[trainCount];
+		int[][] planned = new int[trainCount][];
+		int[] plannedCount = new int[trainCount];
+		int[] touched = new int[trainCount];
+		int[] counts = new int[TYPES];
+		int round = 0;
+		
+		for (int i = 0; i < pendingCount; i++)
+		{
+			pending[i] = i;
+		}
+		
+		while (pendingCount > 0)
+		{
+			int touchedCount = 0;
+			
+			round++;
+			
+			for (int p = 0; p < pendingCount; p++)
+			{
+				int index = pending[p];
+				GroupRequest request = requests.get(index);
+				int option = options[index];
+				int limit = request.getPreferenceCount() * trainCount;
+				
+				for (; option < limit; option++)
+				{
+					int t = option % trainCount;
+					
+					// Снимок читается без блокировки и только для просмотренных поездов:
+					// устаревшее значение лишь приводит к повтору после проверки под блокировкой при фиксации
+					if (snapshotRound[t] != round)
+					{
+						List<Integer> seats = candidates.get(t).getSeats();
+						
+						for (int type = 0; type < TYPES; type++)
+						{
+							free[t][type] = seats.get(type);
+						}
+						
+						snapshotRound[t] = round;
+						plannedCount[t] = 0;
+					}
+					
+					if (free[t][request.getPreference(option / trainCount).ordinal()] >= request.getPassengers())
+					{
+						break;
+					}
+				}
+				
+				options[index] = option;
+				
+				if (option == limit)
+				{
+					result[index] = new Allocation(request, null, null);
+					
+					continue;
+				}
+				
+				int t = option % trainCount;
+				
+				free[t][request.getPreference(option / trainCount).ordinal()] -= request.getPassengers();
+				
+				if (plannedCount[t] == 0)
+				{
+					touched[touchedCount++] = t;
+				}
+				
+				if (planned[t] == null || planned[t].length == plannedCount[t])
+				{
+					planned[t] = planned[t] == null ? new int[8] : Arrays.copyOf(planned[t], planned[t].length * 2);
+				}
+				
+				planned[t][plannedCount[t]++] = index;
+			}
+			
+			pendingCount = 0;
+			
+			for (int k = 0; k < touchedCount; k++)
+			{
+				int t = touched[k];
+				Train train = candidates.get(t);
+				
+				Arrays.fill(counts, 0);
+				
+				for (int j = 0; j < plannedCount[t]; j++)
+				{
+					int index = planned[t][j];
+					GroupRequest request = requests.get(index);
+					
+					counts[request.getPreference(options[index] / trainCount).ordinal()] += request.getPassengers();
+				}
+				
+				commits.incrementAndGet();
+				
+				synchronized (train)
+				{
+					boolean all = reserve(train, counts);
+					
+					for (int j = 0; j < plannedCount[t]; j++)
+					{
+						int index = planned[t][j];
+						GroupRequest request = requests.get(index);
+						Train.SeatType type = request.getPreference(options[index] / trainCount);
+						
+						if (all || train.reserveSeats(type, request.getPassengers()))
+						{
+							result[index] = new Allocation(request, train, type);
+						}
+						else
+						{
+							options[index]++;
+							pending[pendingCount++] = index;
+						}
+					}
+				}
+			}
+			
+			if (pendingCount > 0)
+			{
+				retries.addAndGet(pendingCount);
+				Arrays.sort(pending, 0, pendingCount);
+			}
+		}
+		
+		List<Allocation> allocations = new ArrayList<>(result.length);
+		
+		Collections.addAll(allocations, result);
+		
+		return allocations;
+	}
+	
+	/**
+	 * Количество фиксаций (блокировок поездов) за всё время работы распределителя
+	 *
+	 * @return Количество фиксаций
+	 */
+	public long getCommitCount()
+	{
+		return commits.get();
+	}
+	
+	/**
+	 * Количество заявок, перенесённых в следующий раунд из-за мест, занятых другими потоками
+	 *
+	 * @return Количество повторов
+	 */
+	public long getRetryCount()
+	{
+		return retries.get();
+	}
+	
+	private static boolean reserve(Train train, int[] counts)
+	{
+		try
+		{
+			return train.reserveSeats(counts);
+		}
+		catch (WrongSeatsTypeException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	/**
+	 * Класс описывающий результат распределения одной заявки
+	 */
+	public static class Allocation
+	{
+		private final GroupRequest request;
+		private final Train train;
+		private final Train.SeatType seatType;
+		
+		private Allocation(GroupRequest request, Train train, Train.SeatType seatType)
+		{
+			this.request = request;
+			this.train = train;
+			this.seatType = seatType;
+		}
+		
+		/**
+		 * Getter для request
+		 *
+		 * @return Заявка
+		 */
+		public GroupRequest getRequest()
+		{
+			return request;
+		}
+		
+		/**
+		 * Getter для train
+		 *
+		 * @return Поезд, null если заявка не размещена
+		 */
+		public Train getTrain()
+		{
+			return train;
+		}
+		
+		/**
+		 * Getter для seatType
+		 *
+		 * @return Тип мест, null если заявка не размещена
+		 */
+		public Train.SeatType getSeatType()
+		{
+			return seatType;
+		}
+		
+		/**
+		 * Проверка размещения заявки
+		 *
+		 * @return true если места забронированы, false иначе
+		 */
+		public boolean isAllocated()
+		{
+			return train != null;
+		}
+		
+		/**
+		 * Преобразование результата в строку
+		 *
+		 * @return Строка вида 12 x [COMPARTMENT, COMMON] -> 101A COMPARTMENT
+		 */
+		@Override
+		public String toString()
+		{
+			return request + " -> " + (train == null ? "-" : train.getNumber() + " " + seatType);
+		}
+	}
+}
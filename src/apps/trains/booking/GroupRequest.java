@@ -0,0 +1,90 @@
+package apps.trains.booking;
+
+import java.util.Arrays;
+
+import apps.trains.Train;
+
+/**
+ * Класс описывающий заявку на бронирование мест для группы пассажиров<br>
+ * Вся группа размещается в одном поезде в местах одного типа; типы мест перечисляются в порядке предпочтения
+ */
+public class GroupRequest
+{
+	private final int passengers;
+	private final Train.SeatType[] preferences;
+	
+	/**
+	 * Конструктор заявки
+	 *
+	 * @param passengers  Количество пассажиров
+	 * @param preferences Типы мест в порядке предпочтения
+	 * @throws IllegalArgumentException Количество пассажиров не положительно, типы мест не заданы или повторяются
+	 */
+	public GroupRequest(int passengers, Train.SeatType... preferences)
+	{
+		if (passengers <= 0)
+		{
+			throw new IllegalArgumentException("Количество пассажиров должно быть положительным");
+		}
+		
+		if (preferences.length == 0 || Arrays.stream(preferences).distinct().count() != preferences.length)
+		{
+			throw new IllegalArgumentException("Типы мест должны быть заданы без повторений");
+		}
+		
+		this.passengers = passengers;
+		this.preferences = preferences.clone();
+	}
+	
+	/**
+	 * Getter для passengers
+	 *
+	 * @return Количество пассажиров
+	 */
+	public int getPassengers()
+	{
+		return passengers;
+	}
+	
+	/**
+	 * Getter для preferences
+	 *
+	 * @return Копия массива типов мест в порядке предпочтения
+	 */
+	public Train.SeatType[] getPreferences()
+	{
+		return preferences.clone();
+	}
+	
+	/**
+	 * Количество типов мест в заявке
+	 *
+	 * @return Количество типов мест
+	 */
+	int getPreferenceCount()
+	{
+		return preferences.length;
+	}
+	
+	/**
+	 * Тип мест по номеру предпочтения без копирования массива
+	 *
+	 * @param index Номер предпочтения
+	 * @return Тип мест
+	 */
+	Train.SeatType getPreference(int index)
+	{
+		return preferences[index];
+	}
+	
+	/**
+	 * Преобразование заявки в строку
+	 *
+	 * @return Строка вида 12 x [COMPARTMENT, COMMON]
+	 */
+	@Override
+	public String toString()
+	{
+		return passengers + " x " + Arrays.toString(preferences);
+	}
+}
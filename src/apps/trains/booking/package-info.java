@@ -0,0 +1,4 @@
+/**
+ * Пакет с распределением групповых бронирований GroupAllocator
+ */
+package apps.trains.booking;
\ No newline at end of file
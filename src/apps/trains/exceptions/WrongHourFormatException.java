@@ -5,6 +5,12 @@ package apps.trains.exceptions;
  */
 public class WrongHourFormatException extends Exception
 {
+	/**
+	 * Общий экземпляр без трассировки стека и без подавленных исключений<br>
+	 * Создаётся один раз и не изменяется, поэтому его можно бросать из любых потоков
+	 */
+	public static final WrongHourFormatException STACKLESS = new WrongHourFormatException(false);
+	
 	/**
 	 * Конструктор по умолчанию, создающий нужное сообщение для Exception
 	 */
@@ -12,4 +18,15 @@ public class WrongHourFormatException extends Exception
 	{
 		super("Неверный формат часов\nДопустимым является формат 0-23");
 	}
+	
+	/**
+	 * Конструктор с выбором заполнения трассировки стека<br>
+	 * Без трассировки стека создание исключения не обходит стек вызовов
+	 *
+	 * @param writableStackTrace true если трассировка стека заполняется и подавленные исключения сохраняются
+	 */
+	public WrongHourFormatException(boolean writableStackTrace)
+	{
+		super("Неверный формат часов\nДопустимым является формат 0-23", null, writableStackTrace, writableStackTrace);
+	}
 }
@@ -5,11 +5,28 @@ package apps.trains.exceptions;
  */
 public class WrongSeatsTypeException extends Exception
 {
+	/**
+	 * Общий экземпляр без трассировки стека и без подавленных исключений<br>
+	 * Создаётся один раз и не изменяется, поэтому его можно бросать из любых потоков
+	 */
+	public static final WrongSeatsTypeException STACKLESS = new WrongSeatsTypeException(false);
+	
 	/**
 	 * Конструктор по умолчанию, создающий нужное сообщение для Exception
 	 */
- 	public WrongSeatsTypeException()
+	public WrongSeatsTypeException()
 	{
 		super("Неверный формат посадочных мест");
 	}
+	
+	/**
+	 * Конструктор с выбором заполнения трассировки стека<br>
+	 * Без трассировки стека создание исключения не обходит стек вызовов
+	 *
+	 * @param writableStackTrace true если трассировка стека заполняется и подавленные исключения сохраняются
+	 */
+	public WrongSeatsTypeException(boolean writableStackTrace)
+	{
+		super("Неверный формат посадочных мест", null, writableStackTrace, writableStackTrace);
+	}
 }
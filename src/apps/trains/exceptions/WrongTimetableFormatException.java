@@ -0,0 +1,17 @@
+package apps.trains.exceptions;
+
+/**
+ * Класс описывающий исключение связанное с неверным форматом строки расписания
+ */
+public class WrongTimetableFormatException extends Exception
+{
+	/**
+	 * Конструктор, создающий сообщение с неверной строкой для Exception
+	 *
+	 * @param line Строка расписания с неверным форматом
+	 */
+	public WrongTimetableFormatException(String line)
+	{
+		super("Неверный формат строки расписания: " + line + "\nДопустимым является формат number;destination;HH:mm;common;compartment;luxury");
+	}
+}
@@ -0,0 +1,20 @@
+package apps.trains.journal;
+
+/**
+ * Перечисление режимов сброса журнала на диск
+ */
+public enum FsyncPolicy
+{
+	/**
+	 * FileChannel.force после каждой пакетной записи: изменение подтверждается только после попадания на диск
+	 */
+	EVERY_BATCH,
+	/**
+	 * FileChannel.force не чаще одного раза за интервал: при сбое питания теряются изменения последнего интервала
+	 */
+	INTERVAL,
+	/**
+	 * Без FileChannel.force: данные сбрасывает операционная система, переживает только завершение процесса
+	 */
+	NONE
+}
@@ -0,0 +1,1073 @@
+package apps.trains.journal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+import apps.trains.Timetable;
+import apps.trains.Train;
+import apps.trains.exceptions.WrongSeatsTypeException;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий журнал упреждающей записи изменений расписания<br>
+ * Каждое изменение применяется к расписанию и записывается в конец файла journal.log записью
+ * [длина:int][CRC32C:int][тип:byte][номер:long][поля записи]. Записи из разных потоков собирает один поток записи:
+ * всё, что накопилось в очереди, записывается одним вызовом write и сбрасывается на диск одним FileChannel.force
+ * (групповая фиксация), поэтому количество сбросов не растёт с количеством потоков.<br>
+ * snapshot сохраняет расписание в файл snapshot.txt в формате Timetable и очищает журнал. Первая строка снимка
+ * #seq=N содержит номер последней вошедшей в него записи.
+ * При открытии расписание восстанавливается из снимка и журнала; записи с номером не больше N пропускаются,
+ * поэтому сбой между заменой снимка и очисткой журнала не применяет записи повторно.
+ * Повреждённый конец журнала (незавершённая запись или несовпадение CRC при сбое) отбрасывается; запись с верной
+ * CRC, которую не удаётся применить, считается ошибкой открытия, и журнал не усекается.<br>
+ * Изменения одного поезда выполняются под его монитором, в том числе замена и удаление поезда, поэтому порядок
+ * записей в журнале совпадает с порядком изменений в памяти
+ */
+public class TrainJournal implements AutoCloseable
+{
+	/**
+	 * Интервал сброса на диск для FsyncPolicy.INTERVAL в миллисекундах
+	 */
+	public static final long FSYNC_INTERVAL_MILLIS = 10;
+	
+	private static final String JOURNAL = "journal.log";
+	private static final String SNAPSHOT = "snapshot.txt";
+	private static final String SNAPSHOT_SEQUENCE = "#seq=";
+	private static final int HEADER = 8;
+	private static final int MAX_STRING = 0xFFFF;
+	private static final int MAX_RECORD = 1 << 18;
+	private static final int BUFFER = 1 << 20;
+	
+	private static final byte ADD = 1;
+	private static final byte REMOVE = 2;
+	private static final byte SEATS = 3;
+	private static final byte RESERVE = 4;
+	private static final byte DEPARTURE = 5;
+	private static final byte DESTINATION = 6;
+	
+	private static final Pending CLOSE = new Pending(null);
+	
+	private final Path directory;
+	private final FsyncPolicy policy;
+	private final Timetable timetable;
+	private final FileChannel channel;
+	private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private final CRC32C crc = new CRC32C();
+	private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+	private final Object addLock = new Object();
+	private final Object closeLock = new Object();
+	private final Thread writer;
+	private volatile IOException failure;
+	private volatile boolean closed;
+	private long sequence;
+	private long lastForce = System.nanoTime();
+	private boolean unforced;
+	private long batches;
+	private long records;
+	
+	/**
+	 * Открытие журнала с восстановлением расписания из снимка и журнала
+	 *
+	 * @param directory Каталог журнала, создаётся при отсутствии
+	 * @param policy    Режим сброса на диск
+	 * @throws IOException                   Ошибка чтения или записи файлов
+	 * @throws WrongTimetableFormatException Неверный формат снимка
+	 */
+	public TrainJournal(Path directory, FsyncPolicy policy) throws IOException, WrongTimetableFormatException
+	{
+		this.directory = directory;
+		this.policy = policy;
+		
+		Files.createDirectories(directory);
+		
+		Path snapshot = directory.resolve(SNAPSHOT);
+		
+		timetable = Files.exists(snapshot) ? Timetable.load(snapshot) : new Timetable();
+		sequence = Files.exists(snapshot) ? readSnapshotSequence(snapshot) : 0;
+		channel = FileChannel.open(directory.resolve(JOURNAL), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try
+		{
+			long valid = replay(sequence);
+			
+			channel.truncate(valid);
+			channel.position(valid);
+		}
+		catch (IOException exception)
+		{
+			channel.close();
+			
+			throw exception;
+		}
+		
+		writer = new Thread(this::writeLoop, "train-journal-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * Getter для timetable<br>
+	 * Изменения расписания в обход журнала не сохраняются
+	 *
+	 * @return Восстановленное расписание
+	 */
+	public Timetable getTimetable()
+	{
+		return timetable;
+	}
+	
+	/**
+	 * Добавление поезда в расписание с записью в журнал
+	 *
+	 * @param train Поезд, заменяющий поезд с тем же номером
+	 * @throws IOException Ошибка записи журнала
+	 */
+	public void addTrain(Train train) throws IOException
+	{
+		await(submitAddTrain(train));
+	}
+	
+	/**
+	 * Удаление поезда из расписания с записью в журнал
+	 *
+	 * @param number Номер поезда
+	 * @return true если поезд был в расписании, false иначе
+	 * @throws IOException Ошибка записи журнала
+	 */
+	public boolean removeTrain(String number) throws IOException
+	{
+		CompletableFuture<Long> result = submitRemoveTrain(number);
+		
+		await(result);
+		
+		return result.join() >= 0;
+	}
+	
+	/**
+	 * Изменение количества мест с записью в журнал
+	 *
+	 * @param number Номер поезда
+	 * @param seats  Количество мест каждого типа
+	 * @return true если поезд есть в расписании, false иначе
+	 * @throws IOException             Ошибка записи журнала
+	 * @throws WrongSeatsTypeException Неверный формат посадочных мест
+	 */
+	public boolean setSeats(String number, List<Integer> seats) throws IOException, WrongSeatsTypeException
+	{
+		CompletableFuture<Long> result = submitSetSeats(number, seats);
+		
+		await(result);
+		
+		return result.join() >= 0;
+	}
+	
+	/**
+	 * Бронирование мест с записью в журнал
+	 *
+	 * @param number Номер поезда
+	 * @param type   Тип мест
+	 * @param count  Количество мест
+	 * @return true в случае успешного бронирования, false если поезда нет или мест недостаточно
+	 * @throws IOException Ошибка записи журнала
+	 */
+	public boolean reserve(String number, Train.SeatType type, int count) throws IOException
+	{
+		CompletableFuture<Long> result = submitReserve(number, type, count);
+		
+		await(result);
+		
+		return result.join() >= 0;
+	}
+	
+	/**
+	 * Изменение времени отправления с записью в журнал
+	 *
+	 * @param number        Номер поезда
+	 * @param departureTime Новое время отправления (сохраняются часы и минуты)
+	 * @return true если поезд есть в расписании, false иначе
+	 * @throws IOException Ошибка записи журнала
+	 */
+	public boolean setDepartureTime(String number, Calendar departureTime) throws IOException
+	{
+		CompletableFuture<Long> result = submitSetDepartureTime(number, departureTime);
+		
+		await(result);
+		
+		return result.join() >= 0;
+	}
+	
+	/**
+	 * Изменение пункта назначения с записью в журнал
+	 *
+	 * @param number      Номер поезда
+	 * @param destination Новый пункт назначения
+	 * @return true если поезд есть в расписании, false иначе
+	 * @throws IOException Ошибка записи журнала
+	 */
+	public boolean setDestination(String number, String destination) throws IOException
+	{
+		CompletableFuture<Long> result = submitSetDestination(number, destination);
+		
+		await(result);
+		
+		return result.join() >= 0;
+	}
+	
+	/**
+	 * Асинхронное добавление поезда: изменение видно сразу, future завершается после записи журнала
+	 *
+	 * @param train Поезд
+	 * @return Номер записи в журнале
+	 * @throws IllegalArgumentException Номер или пункт назначения содержит ';' или перевод строки
+	 */
+	public CompletableFuture<Long> submitAddTrain(Train train) throws IllegalArgumentException
+	{
+		checkField(train.getNumber());
+		checkField(train.getDestination());
+		
+		Record record = new Record(ADD, train.getNumber()).string(Timetable.formatTrain(train));
+		
+		snapshotLock.readLock().lock();
+		
+		try
+		{
+			synchronized (addLock)
+			{
+				Train previous = timetable.getTrain(train.getNumber());
+				
+				if (previous == null)
+				{
+					CompletableFuture<Long> result = enqueue(record);
+					
+					timetable.add(train);
+					
+					return result;
+				}
+				
+				// Монитор заменяемого поезда не даёт изменению, начатому над ним, попасть в журнал после ADD
+				synchronized (previous)
+				{
+					CompletableFuture<Long> result = enqueue(record);
+					
+					timetable.add(train);
+					
+					return result;
+				}
+			}
+		}
+		finally
+		{
+			snapshotLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Асинхронное удаление поезда
+	 *
+	 * @param number Номер поезда
+	 * @return Номер записи в журнале, -1 если поезда нет
+	 */
+	public CompletableFuture<Long> submitRemoveTrain(String number)
+	{
+		Record record = new Record(REMOVE, number);
+		
+		snapshotLock.readLock().lock();
+		
+		try
+		{
+			synchronized (addLock)
+			{
+				Train train = timetable.getTrain(number);
+				
+				if (train == null)
+				{
+					return CompletableFuture.completedFuture(-1L);
+				}
+				
+				synchronized (train)
+				{
+					timetable.remove(number);
+					
+					return enqueue(record);
+				}
+			}
+		}
+		finally
+		{
+			snapshotLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Асинхронное изменение количества мест
+	 *
+	 * @param number Номер поезда
+	 * @param seats  Количество мест каждого типа
+	 * @return Номер записи в журнале, -1 если поезда нет
+	 * @throws WrongSeatsTypeException Неверный формат посадочных мест
+	 */
+	public CompletableFuture<Long> submitSetSeats(String number, List<Integer> seats) throws WrongSeatsTypeException
+	{
+		if (seats.size() != Train.SeatType.values().length)
+		{
+			throw WrongSeatsTypeException.STACKLESS;
+		}
+		
+		Record record = new Record(SEATS, number);
+		
+		for (int seat : seats)
+		{
+			record.integer(seat);
+		}
+		
+		return mutate(number, record, train ->
+		{
+			try
+			{
+				train.setSeats(seats);
+			}
+			catch (WrongSeatsTypeException exception)
+			{
+				return false;
+			}
+			
+			return true;
+		});
+	}
+	
+	/**
+	 * Асинхронное бронирование мест, в журнал записываются только успешные бронирования
+	 *
+	 * @param number Номер поезда
+	 * @param type   Тип мест
+	 * @param count  Количество мест
+	 * @return Номер записи в журнале, -1 если поезда нет или мест недостаточно
+	 */
+	public CompletableFuture<Long> submitReserve(String number, Train.SeatType type, int count)
+	{
+		Record record = new Record(RESERVE, number).small(type.ordinal()).integer(count);
+		
+		return mutate(number, record, train -> train.reserveSeats(type, count));
+	}
+	
+	/**
+	 * Асинхронное изменение времени отправления
+	 *
+	 * @param number        Номер поезда
+	 * @param departureTime Новое время отправления (сохраняются часы и минуты)
+	 * @return Номер записи в журнале, -1 если поезда нет
+	 */
+	public CompletableFuture<Long> submitSetDepartureTime(String number, Calendar departureTime)
+	{
+		int hour = departureTime.get(Calendar.HOUR_OF_DAY);
+		int minute = departureTime.get(Calendar.MINUTE);
+		Record record = new Record(DEPARTURE, number).small(hour).small(minute);
+		
+		return mutate(number, record, train ->
+		{
+			train.setDepartureTime(time(hour, minute));
+			
+			return true;
+		});
+	}
+	
+	/**
+	 * Асинхронное изменение пункта назначения
+	 *
+	 * @param number      Номер поезда
+	 * @param destination Новый пункт назначения
+	 * @return Номер записи в журнале, -1 если поезда нет
+	 * @throws IllegalArgumentException Пункт назначения содержит ';' или перевод строки
+	 */
+	public CompletableFuture<Long> submitSetDestination(String number, String destination) throws IllegalArgumentException
+	{
+		checkField(destination);
+		
+		Record record = new Record(DESTINATION, number).string(destination);
+		
+		return mutate(number, record, train ->
+		{
+			train.setDestination(destination);
+			
+			return true;
+		});
+	}
+	
+	/**
+	 * Сохранение снимка расписания и очистка журнала<br>
+	 * На время снимка изменения приостанавливаются; снимок записывается во временный файл и атомарно переименовывается
+	 *
+	 * @throws IOException Ошибка записи снимка или журнала
+	 */
+	public void snapshot() throws IOException
+	{
+		snapshotLock.writeLock().lock();
+		
+		try
+		{
+			Pending marker = new Pending(null);
+			
+			put(marker);
+			await(marker.future);
+		}
+		finally
+		{
+			snapshotLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Количество выполненных пакетных записей
+	 *
+	 * @return Количество пакетов
+	 */
+	public synchronized long getBatchCount()
+	{
+		return batches;
+	}
+	
+	/**
+	 * Количество записанных записей
+	 *
+	 * @return Количество записей
+	 */
+	public synchronized long getRecordCount()
+	{
+		return records;
+	}
+	
+	/**
+	 * Закрытие журнала после записи всех принятых изменений
+	 *
+	 * @throws IOException Ошибка записи журнала
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (closeLock)
+		{
+			if (closed)
+			{
+				return;
+			}
+			
+			closed = true;
+			queue.add(CLOSE);
+		}
+		
+		try
+		{
+			writer.join();
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		try
+		{
+			List<Pending> rest = new ArrayList<>();
+			
+			queue.drainTo(rest);
+			commit(rest, true);
+		}
+		finally
+		{
+			channel.close();
+		}
+		
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+	
+	private CompletableFuture<Long> mutate(String number, Record record, Predicate<Train> mutation)
+	{
+		snapshotLock.readLock().lock();
+		
+		try
+		{
+			while (true)
+			{
+				Train train = timetable.getTrain(number);
+				
+				if (train == null)
+				{
+					return CompletableFuture.completedFuture(-1L);
+				}
+				
+				synchronized (train)
+				{
+					// Поезд мог быть заменён или удалён между поиском и захватом монитора:
+					// изменение отсоединённого объекта потерялось бы в памяти, но применилось бы при восстановлении
+					if (timetable.getTrain(number) != train)
+					{
+						continue;
+					}
+					
+					if (!mutation.test(train))
+					{
+						return CompletableFuture.completedFuture(-1L);
+					}
+					
+					return enqueue(record);
+				}
+			}
+		}
+		finally
+		{
+			snapshotLock.readLock().unlock();
+		}
+	}
+	
+	private CompletableFuture<Long> enqueue(Record record)
+	{
+		Pending pending = new Pending(record);
+		
+		put(pending);
+		
+		return pending.future;
+	}
+	
+	/**
+	 * Постановка в очередь под closeLock: запись либо попадает в очередь раньше CLOSE, либо отклоняется
+	 */
+	private void put(Pending pending)
+	{
+		synchronized (closeLock)
+		{
+			IOException error = failure;
+			
+			if (error == null && closed)
+			{
+				error = new IOException("Журнал закрыт");
+			}
+			
+			if (error != null)
+			{
+				pending.future.completeExceptionally(error);
+				
+				return;
+			}
+			
+			queue.add(pending);
+		}
+	}
+	
+	private static void checkField(String value) throws IllegalArgumentException
+	{
+		if (value != null && (value.indexOf(';') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0))
+		{
+			throw new IllegalArgumentException("Поле расписания не может содержать ';' или перевод строки: " + value);
+		}
+	}
+	
+	private void writeLoop()
+	{
+		List<Pending> batch = new ArrayList<>();
+		boolean running = true;
+		
+		while (running)
+		{
+			try
+			{
+				if (!unforced)
+				{
+					batch.add(queue.take());
+				}
+				else
+				{
+					// При FsyncPolicy.INTERVAL последний пакет сбрасывается по истечении интервала,
+					// даже если новых записей не поступает
+					long wait = lastForce + TimeUnit.MILLISECONDS.toNanos(FSYNC_INTERVAL_MILLIS) - System.nanoTime();
+					Pending next = queue.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+					
+					if (next == null)
+					{
+						forceUnforced();
+						
+						continue;
+					}
+					
+					batch.add(next);
+				}
+			}
+			catch (InterruptedException exception)
+			{
+				return;
+			}
+			
+			queue.drainTo(batch);
+			
+			running = !batch.remove(CLOSE);
+			
+			commit(batch, !running);
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * Групповая фиксация: записи пакета пишутся через общий буфер, затем выполняется не больше одного force,
+	 * после чего завершаются future всех записей пакета
+	 */
+	private void commit(List<Pending> batch, boolean force)
+	{
+		if (batch.isEmpty() && !force)
+		{
+			return;
+		}
+		
+		try
+		{
+			if (failure != null)
+			{
+				throw failure;
+			}
+			
+			int count = 0;
+			
+			for (Pending pending : batch)
+			{
+				if (pending.record == null)
+				{
+					flush();
+					writeSnapshot();
+					
+					continue;
+				}
+				
+				pending.sequence = ++sequence;
+				
+				if (buffer.remaining() < HEADER + pending.record.length())
+				{
+					flush();
+				}
+				
+				pending.record.encode(buffer, pending.sequence, crc);
+				count++;
+			}
+			
+			flush();
+			
+			long now = System.nanoTime();
+			
+			if (policy == FsyncPolicy.EVERY_BATCH || policy == FsyncPolicy.INTERVAL && (force || now - lastForce >= TimeUnit.MILLISECONDS.toNanos(FSYNC_INTERVAL_MILLIS)))
+			{
+				channel.force(false);
+				lastForce = now;
+				unforced = false;
+			}
+			else if (policy == FsyncPolicy.INTERVAL && count > 0)
+			{
+				unforced = true;
+			}
+			
+			synchronized (this)
+			{
+				batches++;
+				records += count;
+			}
+			
+			for (Pending pending : batch)
+			{
+				pending.future.complete(pending.sequence);
+			}
+		}
+		catch (IOException exception)
+		{
+			failure = exception;
+			
+			for (Pending pending : batch)
+			{
+				pending.future.completeExceptionally(exception);
+			}
+		}
+	}
+	
+	/**
+	 * Сброс на диск записей, оставшихся после последнего пакета при FsyncPolicy.INTERVAL
+	 */
+	private void forceUnforced()
+	{
+		unforced = false;
+		
+		try
+		{
+			channel.force(false);
+			lastForce = System.nanoTime();
+		}
+		catch (IOException exception)
+		{
+			failure = exception;
+		}
+	}
+	
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		
+		buffer.clear();
+	}
+	
+	private void writeSnapshot() throws IOException
+	{
+		Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+		
+		try (BufferedWriter output = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))
+		{
+			output.write(SNAPSHOT_SEQUENCE + sequence);
+			output.newLine();
+			
+			for (Train train : timetable.getTrains())
+			{
+				synchronized (train)
+				{
+					output.write(Timetable.formatTrain(train));
+				}
+				
+				output.newLine();
+			}
+		}
+		
+		try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.WRITE))
+		{
+			file.force(true);
+		}
+		
+		Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		channel.truncate(0);
+		channel.position(0);
+		channel.force(true);
+	}
+	
+	/**
+	 * Номер последней записи, вошедшей в снимок
+	 *
+	 * @return Номер из строки #seq=N, 0 для снимка без этой строки
+	 */
+	private static long readSnapshotSequence(Path snapshot) throws IOException, WrongTimetableFormatException
+	{
+		try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8))
+		{
+			String line = reader.readLine();
+			
+			if (line == null || !line.startsWith(SNAPSHOT_SEQUENCE))
+			{
+				return 0;
+			}
+			
+			try
+			{
+				return Long.parseLong(line.substring(SNAPSHOT_SEQUENCE.length()));
+			}
+			catch (NumberFormatException exception)
+			{
+				throw new WrongTimetableFormatException(line);
+			}
+		}
+	}
+	
+	/**
+	 * Применение записей журнала к расписанию
+	 *
+	 * @param applied Номер последней записи, уже вошедшей в снимок
+	 * @return Длина корректной части журнала (до первой оборванной записи или записи с неверной CRC)
+	 * @throws IOException Ошибка чтения или запись с верной CRC, которую не удаётся применить
+	 */
+	private long replay(long applied) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		long position = 0;
+		long size = channel.size();
+		
+		while (position + HEADER <= size)
+		{
+			header.clear();
+			channel.read(header, position);
+			header.flip();
+			
+			int length = header.getInt();
+			int checksum = header.getInt();
+			
+			if (length <= 0 || length > MAX_RECORD || position + HEADER + length > size)
+			{
+				break;
+			}
+			
+			ByteBuffer payload = ByteBuffer.allocate(length);
+			
+			while (payload.hasRemaining())
+			{
+				if (channel.read(payload, position + HEADER + payload.position()) < 0)
+				{
+					return position;
+				}
+			}
+			
+			crc.reset();
+			crc.update(payload.array(), 0, length);
+			
+			if ((int) crc.getValue() != checksum)
+			{
+				break;
+			}
+			
+			payload.flip();
+			
+			try
+			{
+				apply(payload, applied);
+			}
+			catch (RuntimeException | WrongTimetableFormatException | WrongSeatsTypeException exception)
+			{
+				// Запись с верной CRC записана целиком, поэтому это не оборванный конец журнала:
+				// усечение уничтожило бы все последующие записи
+				throw new IOException("Запись журнала в позиции " + position + " не применяется", exception);
+			}
+			
+			position += HEADER + length;
+		}
+		
+		return position;
+	}
+	
+	private void apply(ByteBuffer payload, long applied) throws WrongTimetableFormatException, WrongSeatsTypeException
+	{
+		byte type = payload.get();
+		long recordSequence = payload.getLong();
+		
+		// Запись уже учтена в снимке: журнал остался от сбоя между заменой снимка и его очисткой
+		if (recordSequence <= applied)
+		{
+			return;
+		}
+		
+		sequence = recordSequence;
+		
+		String number = readString(payload);
+		
+		if (type == ADD)
+		{
+			timetable.add(Timetable.parseTrain(readString(payload)));
+			
+			return;
+		}
+		
+		if (type == REMOVE)
+		{
+			timetable.remove(number);
+			
+			return;
+		}
+		
+		Train train = timetable.getTrain(number);
+		
+		if (train == null)
+		{
+			return;
+		}
+		
+		switch (type)
+		{
+			case SEATS:
+				List<Integer> seats = new ArrayList<>();
+				
+				for (int i = 0; i < Train.SeatType.values().length; i++)
+				{
+					seats.add(payload.getInt());
+				}
+				
+				train.setSeats(seats);
+				
+				break;
+			case RESERVE:
+				train.reserveSeats(Train.SeatType.values()[payload.get()], payload.getInt());
+				
+				break;
+			case DEPARTURE:
+				train.setDepartureTime(time(payload.get(), payload.get()));
+				
+				break;
+			case DESTINATION:
+				train.setDestination(readString(payload));
+				
+				break;
+			default:
+				throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+		}
+	}
+	
+	private static String readString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		
+		buffer.get(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static Calendar time(int hour, int minute)
+	{
+		Calendar result = Calendar.getInstance();
+		
+		result.set(Calendar.HOUR_OF_DAY, hour);
+		result.set(Calendar.MINUTE, minute);
+		result.set(Calendar.SECOND, 0);
+		result.set(Calendar.MILLISECOND, 0);
+		
+		return result;
+	}
+	
+	private static void await(CompletableFuture<Long> future) throws IOException
+	{
+		try
+		{
+			future.join();
+		}
+		catch (CompletionException exception)
+		{
+			if (exception.getCause() instanceof IOException)
+			{
+				throw (IOException) exception.getCause();
+			}
+			
+			if (exception.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) exception.getCause();
+			}
+			
+			throw new IOException(exception.getCause());
+		}
+	}
+	
+	/**
+	 * Запись, ожидающая пакетной записи потоком журнала; record == null - маркер снимка
+	 */
+	private static class Pending
+	{
+		private final Record record;
+		private final CompletableFuture<Long> future = new CompletableFuture<>();
+		private long sequence;
+		
+		private Pending(Record record)
+		{
+			this.record = record;
+		}
+	}
+	
+	/**
+	 * Поля записи журнала в порядке записи
+	 */
+	private static class Record
+	{
+		private final byte type;
+		private byte[] fields = new byte[32];
+		private int size;
+		
+		private Record(byte type, String number)
+		{
+			this.type = type;
+			
+			string(number);
+		}
+		
+		private Record string(String value)
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			
+			if (bytes.length > MAX_STRING)
+			{
+				throw new IllegalArgumentException("Строка длиннее " + MAX_STRING + " байт");
+			}
+			
+			ensure(2 + bytes.length);
+			fields[size++] = (byte) (bytes.length >>> 8);
+			fields[size++] = (byte) bytes.length;
+			System.arraycopy(bytes, 0, fields, size, bytes.length);
+			size += bytes.length;
+			
+			return this;
+		}
+		
+		private Record integer(int value)
+		{
+			ensure(4);
+			
+			for (int shift = 24; shift >= 0; shift -= 8)
+			{
+				fields[size++] = (byte) (value >>> shift);
+			}
+			
+			return this;
+		}
+		
+		private Record small(int value)
+		{
+			ensure(1);
+			fields[size++] = (byte) value;
+			
+			return this;
+		}
+		
+		private void ensure(int count)
+		{
+			if (size + count > fields.length)
+			{
+				fields = Arrays.copyOf(fields, Math.max(fields.length * 2, size + count));
+			}
+		}
+		
+		/**
+		 * Длина записи без заголовка
+		 */
+		private int length()
+		{
+			return 1 + 8 + size;
+		}
+		
+		/**
+		 * Запись в буфер с заголовком [длина][CRC32C]
+		 */
+		private void encode(ByteBuffer buffer, long sequence, CRC32C crc)
+		{
+			int start = buffer.position();
+			
+			buffer.putInt(length()).putInt(0).put(type).putLong(sequence).put(fields, 0, size);
+			
+			ByteBuffer payload = buffer.duplicate();
+			
+			payload.position(start + HEADER).limit(buffer.position());
+			crc.reset();
+			crc.update(payload);
+			buffer.putInt(start + 4, (int) crc.getValue());
+		}
+	}
+}
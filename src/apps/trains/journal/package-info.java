@@ -0,0 +1,4 @@
+/**
+ * Пакет с журналом изменений расписания TrainJournal
+ */
+package apps.trains.journal;
\ No newline at end of file
@@ -0,0 +1,827 @@
+package apps.trains.shard;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import apps.trains.Train;
+import apps.trains.exceptions.WrongHourFormatException;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий расписание, распределённое по процессам ShardWorker на этом же компьютере<br>
+ * Поезда распределяются по шардам хэшем нормализованного пункта назначения, поэтому запросы
+ * getTrainListBy* с пунктом назначения отправляются только шарду-владельцу. Запросы без пункта назначения
+ * (getTrain, getTrainListAfterHour, size) рассылаются всем шардам сразу: запрос пишется во все шарды,
+ * затем читаются все ответы, так что шарды обрабатывают его одновременно.<br>
+ * К каждому шарду открыт пул соединений, поэтому запросы из разных потоков выполняются параллельно.
+ * Поезда в результатах - копии, полученные из шарда; изменения выполняются через add и addAll.
+ * Номер поезда уникален среди всех шардов: при добавлении поезда с новым пунктом назначения копия
+ * в прежнем шарде удаляется.<br>
+ * rebalance меняет количество шардов с переносом поездов, запросы на время переноса приостанавливаются
+ */
+public class ShardCoordinator implements AutoCloseable
+{
+	/**
+	 * Описание способов связи с шардами
+	 */
+	public enum Transport
+	{
+		/**
+		 * TCP через loopback интерфейс
+		 */
+		TCP,
+		/**
+		 * Unix domain socket во временном каталоге
+		 */
+		UNIX
+	}
+	
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+	
+	private final Transport transport;
+	private final int connectionsPerShard;
+	private final List<String> jvmOptions;
+	private final Path socketDirectory;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Object addLock = new Object();
+	private final List<Shard> shards = new ArrayList<>();
+	
+	/**
+	 * Запуск шардов с пулом соединений по количеству процессоров
+	 *
+	 * @param shardCount Количество шардов
+	 * @param transport  Способ связи с шардами
+	 * @throws IOException Ошибка запуска процесса или подключения к шарду
+	 */
+	public ShardCoordinator(int shardCount, Transport transport) throws IOException
+	{
+		this(shardCount, transport, Math.max(2, Runtime.getRuntime().availableProcessors()), List.of());
+	}
+	
+	/**
+	 * Запуск шардов
+	 *
+	 * @param shardCount          Количество шардов
+	 * @param transport           Способ связи с шардами
+	 * @param connectionsPerShard Количество соединений с каждым шардом (одновременных запросов к шарду)
+	 * @param jvmOptions          Параметры JVM процессов-шардов, например -Xmx2g
+	 * @throws IOException              Ошибка запуска процесса или подключения к шарду
+	 * @throws IllegalArgumentException Неположительное количество шардов или соединений
+	 */
+	public ShardCoordinator(int shardCount, Transport transport, int connectionsPerShard, List<String> jvmOptions) throws IOException
+	{
+		if (shardCount <= 0 || connectionsPerShard <= 0)
+		{
+			throw new IllegalArgumentException("Количество шардов и соединений должно быть положительным");
+		}
+		
+		this.transport = transport;
+		this.connectionsPerShard = connectionsPerShard;
+		this.jvmOptions = List.copyOf(jvmOptions);
+		this.socketDirectory = transport == Transport.UNIX ? Files.createTempDirectory("shards") : null;
+		
+		try
+		{
+			start(shardCount);
+		}
+		catch (IOException exception)
+		{
+			close();
+			
+			throw exception;
+		}
+	}
+	
+	/**
+	 * Количество шардов
+	 *
+	 * @return Количество шардов
+	 */
+	public int getShardCount()
+	{
+		lock.readLock().lock();
+		
+		try
+		{
+			return shards.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Номер шарда, владеющего пунктом назначения
+	 *
+	 * @param destination Пункт назначения
+	 * @return Номер шарда
+	 */
+	public int shardOf(String destination)
+	{
+		return ShardProtocol.shardOf(destination, getShardCount());
+	}
+	
+	/**
+	 * Добавление поезда в шард-владелец его пункта назначения<br>
+	 * Поезд с тем же номером заменяется, в том числе если он хранится в другом шарде
+	 *
+	 * @param train Поезд
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public void add(Train train) throws IOException
+	{
+		addAll(List.of(train));
+	}
+	
+	/**
+	 * Добавление поездов: поезда группируются по шардам, каждому шарду отправляется один запрос.
+	 * Затем остальным шардам рассылается удаление тех же номеров, чтобы не осталось копий поездов,
+	 * сменивших пункт назначения. Порядок выбран так, что при ошибке связи поезд может остаться в двух шардах,
+	 * но не может пропасть. Добавления из разных потоков выполняются по очереди: иначе два потока,
+	 * добавляющие один номер в разные шарды, удалили бы копии друг друга
+	 *
+	 * @param trains Поезда
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public void addAll(Collection<Train> trains) throws IOException
+	{
+		synchronized (addLock)
+		{
+			lock.readLock().lock();
+			
+			try
+			{
+				send(trains, shards.size());
+				
+				if (shards.size() > 1)
+				{
+					removeElsewhere(trains);
+				}
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения
+	 *
+	 * @param destination Пункт назначения
+	 * @return Список поездов, следующих до destination
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public List<Train> getTrainListByDestination(String destination) throws IOException
+	{
+		return route(destination, ShardProtocol.BY_DESTINATION, destination);
+	}
+	
+	/**
+	 * Список поездов, следующих до заданного пункта назначения и отправляющихся после заданного часа
+	 *
+	 * @param destination Пункт назначения
+	 * @param hour        Время для сравнения
+	 * @return Список поездов, следующих до destination после hour
+	 * @throws IOException              Ошибка связи с шардом
+	 * @throws WrongHourFormatException Неверный формат hour
+	 */
+	public List<Train> getTrainListByDestinationAndAfterHour(String destination, int hour) throws IOException, WrongHourFormatException
+	{
+		checkHour(hour);
+		
+		return route(destination, ShardProtocol.BY_DESTINATION_AFTER_HOUR, hour + "\n" + destination);
+	}
+	
+	/**
+	 * Список поездов, отправляющихся до заданного пункта назначения и имеющих общие места
+	 *
+	 * @param destination Пункт назначения
+	 * @return Список поездов, следующих до destination и имеющих общие места
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public List<Train> getTrainListByDestinationAndCommonSeatType(String destination) throws IOException
+	{
+		return route(destination, ShardProtocol.BY_DESTINATION_COMMON, destination);
+	}
+	
+	/**
+	 * Список поездов всех пунктов назначения, отправляющихся после заданного часа (запрос ко всем шардам)
+	 *
+	 * @param hour Время для сравнения
+	 * @return Список поездов, отправляющихся после hour, упорядоченный по шардам
+	 * @throws IOException              Ошибка связи с шардом
+	 * @throws WrongHourFormatException Неверный формат hour
+	 */
+	public List<Train> getTrainListAfterHour(int hour) throws IOException, WrongHourFormatException
+	{
+		checkHour(hour);
+		
+		List<Train> result = new ArrayList<>();
+		
+		for (String body : broadcast(ShardProtocol.AFTER_HOUR, Integer.toString(hour)))
+		{
+			result.addAll(parse(body));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Поиск поезда по номеру (запрос ко всем шардам)
+	 *
+	 * @param number Номер поезда
+	 * @return Копия поезда, null если поезда нет ни в одном шарде
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public Train getTrain(String number) throws IOException
+	{
+		for (String body : broadcast(ShardProtocol.FIND, number))
+		{
+			if (!body.isEmpty())
+			{
+				return parse(body).get(0);
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Количество поездов во всех шардах
+	 *
+	 * @return Количество поездов
+	 * @throws IOException Ошибка связи с шардом
+	 */
+	public int size() throws IOException
+	{
+		int result = 0;
+		
+		for (String body : broadcast(ShardProtocol.SIZE, ""))
+		{
+			result += Integer.parseInt(body);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Изменение количества шардов<br>
+	 * Новые шарды запускаются, каждый шард возвращает копии поездов, которые при новом количестве принадлежат
+	 * другому шарду, копии добавляются новым владельцам, и только после успешного добавления поезда удаляются
+	 * из прежних шардов, а лишние шарды останавливаются. При ошибке добавления уже добавленные копии удаляются,
+	 * запущенные шарды останавливаются и количество шардов не меняется. При ошибке удаления из прежних шардов
+	 * количество шардов уже изменено, оставшиеся копии удаляет повторный rebalance с тем же количеством.
+	 * Переносятся только поезда, сменившие владельца
+	 *
+	 * @param shardCount Новое количество шардов
+	 * @return Количество перенесённых поездов
+	 * @throws IOException              Ошибка запуска шарда или связи с шардом
+	 * @throws IllegalArgumentException Неположительное количество шардов
+	 */
+	public int rebalance(int shardCount) throws IOException
+	{
+		if (shardCount <= 0)
+		{
+			throw new IllegalArgumentException("Количество шардов должно быть положительным");
+		}
+		
+		lock.writeLock().lock();
+		
+		try
+		{
+			int previous = shards.size();
+			
+			if (shardCount > previous)
+			{
+				start(shardCount - previous);
+			}
+			
+			List<List<Train>> misplaced = new ArrayList<>();
+			List<Train> moved = new ArrayList<>();
+			
+			try
+			{
+				String[] requests = new String[shards.size()];
+				
+				for (int i = 0; i < previous; i++)
+				{
+					requests[i] = shardCount + "\n" + i;
+				}
+				
+				for (String body : exchange(ShardProtocol.MISPLACED, requests))
+				{
+					if (body != null)
+					{
+						misplaced.add(parse(body));
+						moved.addAll(misplaced.get(misplaced.size() - 1));
+					}
+				}
+				
+				send(moved, shardCount);
+			}
+			catch (IOException exception)
+			{
+				rollback(moved, previous, shardCount, exception);
+				
+				throw exception;
+			}
+			
+			while (shards.size() > shardCount)
+			{
+				shards.remove(shards.size() - 1).stop();
+			}
+			
+			String[] removals = new String[shards.size()];
+			
+			for (int i = 0; i < Math.min(previous, shardCount); i++)
+			{
+				removals[i] = misplaced.get(i).isEmpty() ? null : numbers(misplaced.get(i));
+			}
+			
+			exchange(ShardProtocol.REMOVE, removals);
+			
+			return moved.size();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Остановка всех шардов
+	 */
+	@Override
+	public void close()
+	{
+		lock.writeLock().lock();
+		
+		try
+		{
+			for (Shard shard : shards)
+			{
+				shard.stop();
+			}
+			
+			shards.clear();
+			
+			if (socketDirectory != null)
+			{
+				try
+				{
+					Files.deleteIfExists(socketDirectory);
+				}
+				catch (IOException exception)
+				{
+					// Каталог удаляется при очистке временных файлов
+				}
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private static void checkHour(int hour) throws WrongHourFormatException
+	{
+		if (hour < 0 || hour > 23)
+		{
+			throw WrongHourFormatException.STACKLESS;
+		}
+	}
+	
+	private static List<Train> parse(String body) throws IOException
+	{
+		try
+		{
+			return ShardProtocol.parse(body);
+		}
+		catch (WrongTimetableFormatException exception)
+		{
+			throw new IOException("Неверный ответ шарда", exception);
+		}
+	}
+	
+	/**
+	 * Запуск count новых шардов: сначала запускаются все процессы, затем ожидается готовность каждого
+	 */
+	private void start(int count) throws IOException
+	{
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		List<Process> processes = new ArrayList<>();
+		int previous = shards.size();
+		
+		try
+		{
+			for (int i = 0; i < count; i++)
+			{
+				List<String> command = new ArrayList<>();
+				
+				command.add(java);
+				command.addAll(jvmOptions);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(ShardWorker.class.getName());
+				command.add(transport == Transport.UNIX ? "unix:" + socketDirectory.resolve("shard-" + (previous + i) + ".sock") : "tcp");
+				
+				processes.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+			}
+			
+			for (Process process : processes)
+			{
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+				String line = reader.readLine();
+				
+				if (line == null || !line.startsWith("READY "))
+				{
+					throw new IOException("Шард не запустился: " + line);
+				}
+				
+				shards.add(new Shard(process, line.substring("READY ".length())));
+			}
+		}
+		catch (IOException exception)
+		{
+			while (shards.size() > previous)
+			{
+				shards.remove(shards.size() - 1).stop();
+			}
+			
+			for (Process process : processes)
+			{
+				process.destroyForcibly();
+			}
+			
+			throw exception;
+		}
+	}
+	
+	private List<Train> route(String destination, byte code, String body) throws IOException
+	{
+		lock.readLock().lock();
+		
+		try
+		{
+			String[] requests = new String[shards.size()];
+			
+			requests[ShardProtocol.shardOf(destination, shards.size())] = body;
+			
+			for (String response : exchange(code, requests))
+			{
+				if (response != null)
+				{
+					return parse(response);
+				}
+			}
+			
+			return new ArrayList<>();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	private String[] broadcast(byte code, String body) throws IOException
+	{
+		lock.readLock().lock();
+		
+		try
+		{
+			String[] requests = new String[shards.size()];
+			
+			Arrays.fill(requests, body);
+			
+			return exchange(code, requests);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Отмена неудачного переноса: копии удаляются из существовавших шардов, ставших их владельцами,
+	 * новые шарды останавливаются. Ошибки отмены добавляются к исходной ошибке
+	 */
+	private void rollback(List<Train> moved, int previous, int shardCount, IOException failure)
+	{
+		List<List<Train>> copies = group(moved, shardCount);
+		String[] requests = new String[shards.size()];
+		
+		for (int i = 0; i < Math.min(previous, shardCount); i++)
+		{
+			requests[i] = copies.get(i).isEmpty() ? null : numbers(copies.get(i));
+		}
+		
+		try
+		{
+			exchange(ShardProtocol.REMOVE, requests);
+		}
+		catch (IOException exception)
+		{
+			failure.addSuppressed(exception);
+		}
+		
+		while (shards.size() > previous)
+		{
+			shards.remove(shards.size() - 1).stop();
+		}
+	}
+	
+	/**
+	 * Удаление номеров поездов из всех шардов, кроме владельца, вызывается под блокировкой
+	 */
+	private void removeElsewhere(Collection<Train> trains) throws IOException
+	{
+		List<List<Train>> groups = group(trains, shards.size());
+		String[] requests = new String[shards.size()];
+		
+		for (int i = 0; i < requests.length; i++)
+		{
+			StringBuilder builder = new StringBuilder();
+			
+			for (int j = 0; j < requests.length; j++)
+			{
+				if (j != i && !groups.get(j).isEmpty())
+				{
+					builder.append(numbers(groups.get(j)));
+				}
+			}
+			
+			requests[i] = builder.length() == 0 ? null : builder.toString();
+		}
+		
+		exchange(ShardProtocol.REMOVE, requests);
+	}
+	
+	/**
+	 * Отправка поездов шардам-владельцам при shardCount шардах, вызывается под блокировкой
+	 */
+	private void send(Collection<Train> trains, int shardCount) throws IOException
+	{
+		List<List<Train>> groups = group(trains, shardCount);
+		String[] requests = new String[shards.size()];
+		
+		for (int i = 0; i < shardCount; i++)
+		{
+			requests[i] = groups.get(i).isEmpty() ? null : ShardProtocol.format(groups.get(i));
+		}
+		
+		exchange(ShardProtocol.ADD, requests);
+	}
+	
+	private static List<List<Train>> group(Collection<Train> trains, int shardCount)
+	{
+		List<List<Train>> groups = new ArrayList<>();
+		
+		for (int i = 0; i < shardCount; i++)
+		{
+			groups.add(new ArrayList<>());
+		}
+		
+		for (Train train : trains)
+		{
+			groups.get(ShardProtocol.shardOf(train.getDestination(), shardCount)).add(train);
+		}
+		
+		return groups;
+	}
+	
+	private static String numbers(List<Train> trains)
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		for (Train train : trains)
+		{
+			builder.append(train.getNumber()).append('\n');
+		}
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Отправка запросов шардам с непустым телом и получение ответов, вызывается под блокировкой<br>
+	 * Соединения берутся из пулов в порядке номеров шардов, поэтому потоки не блокируют друг друга взаимно
+	 *
+	 * @return Ответы шардов, null для шардов без запроса
+	 */
+	private String[] exchange(byte code, String[] requests) throws IOException
+	{
+		SocketChannel[] channels = new SocketChannel[requests.length];
+		String[] responses = new String[requests.length];
+		IOException failure = null;
+		
+		try
+		{
+			for (int i = 0; i < requests.length; i++)
+			{
+				if (requests[i] != null)
+				{
+					channels[i] = shards.get(i).acquire();
+				}
+			}
+			
+			for (int i = 0; i < requests.length; i++)
+			{
+				if (channels[i] != null)
+				{
+					ShardProtocol.write(channels[i], code, requests[i]);
+				}
+			}
+			
+			for (int i = 0; i < requests.length; i++)
+			{
+				if (channels[i] != null)
+				{
+					ShardProtocol.Frame response = ShardProtocol.read(channels[i]);
+					
+					if (response.code != ShardProtocol.OK)
+					{
+						failure = failure == null ? new IOException("Ошибка шарда " + i + ": " + response.body) : failure;
+					}
+					
+					responses[i] = response.body;
+				}
+			}
+		}
+		catch (IOException exception)
+		{
+			failure = exception;
+			
+			for (int i = 0; i < channels.length; i++)
+			{
+				if (channels[i] != null)
+				{
+					channels[i] = shards.get(i).reconnect(channels[i]);
+				}
+			}
+		}
+		finally
+		{
+			for (int i = 0; i < channels.length; i++)
+			{
+				if (channels[i] != null)
+				{
+					shards.get(i).release(channels[i]);
+				}
+			}
+		}
+		
+		if (failure != null)
+		{
+			throw failure;
+		}
+		
+		return responses;
+	}
+	
+	/**
+	 * Процесс-шард с пулом соединений
+	 */
+	private class Shard
+	{
+		private final Process process;
+		private final String address;
+		private final ArrayBlockingQueue<SocketChannel> pool;
+		
+		private Shard(Process process, String address) throws IOException
+		{
+			this.process = process;
+			this.address = address;
+			this.pool = new ArrayBlockingQueue<>(connectionsPerShard);
+			
+			for (int i = 0; i < connectionsPerShard; i++)
+			{
+				pool.add(connect());
+			}
+		}
+		
+		private SocketChannel connect() throws IOException
+		{
+			if (address.startsWith("unix:"))
+			{
+				return SocketChannel.open(UnixDomainSocketAddress.of(address.substring("unix:".length())));
+			}
+			
+			SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address.substring("tcp:".length()))));
+			
+			channel.socket().setTcpNoDelay(true);
+			
+			return channel;
+		}
+		
+		private SocketChannel acquire() throws IOException
+		{
+			try
+			{
+				return pool.take();
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				
+				throw new IOException("Ожидание соединения прервано", exception);
+			}
+		}
+		
+		private void release(SocketChannel channel)
+		{
+			pool.add(channel);
+		}
+		
+		/**
+		 * Замена соединения в неизвестном состоянии; при неудаче возвращается закрытое соединение,
+		 * и следующий запрос к шарду завершится ошибкой
+		 */
+		private SocketChannel reconnect(SocketChannel channel)
+		{
+			try
+			{
+				channel.close();
+				
+				return connect();
+			}
+			catch (IOException exception)
+			{
+				return channel;
+			}
+		}
+		
+		private void stop()
+		{
+			SocketChannel channel = pool.poll();
+			
+			try
+			{
+				if (channel != null)
+				{
+					ShardProtocol.write(channel, ShardProtocol.SHUTDOWN, "");
+					ShardProtocol.read(channel);
+				}
+			}
+			catch (IOException exception)
+			{
+				// Шард уже завершился
+			}
+			
+			for (SocketChannel other : pool)
+			{
+				try
+				{
+					other.close();
+				}
+				catch (IOException exception)
+				{
+					// Соединение уже закрыто
+				}
+			}
+			
+			try
+			{
+				if (channel != null)
+				{
+					channel.close();
+				}
+				
+				if (!process.waitFor(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+				{
+					process.destroyForcibly();
+				}
+				
+				if (address.startsWith("unix:"))
+				{
+					Files.deleteIfExists(Path.of(address.substring("unix:".length())));
+				}
+			}
+			catch (InterruptedException exception)
+			{
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+			catch (IOException exception)
+			{
+				// Файл сокета удаляется при очистке временных файлов
+			}
+		}
+	}
+}
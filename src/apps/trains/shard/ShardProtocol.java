@@ -0,0 +1,164 @@
+package apps.trains.shard;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import apps.trains.StationDictionary;
+import apps.trains.Timetable;
+import apps.trains.Train;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий протокол обмена между ShardCoordinator и ShardWorker<br>
+ * Кадр: [длина тела:int][код:byte][тело в UTF-8]. Поезда передаются строками формата Timetable, разделёнными '\n'.
+ * На каждый запрос шард отвечает ровно одним кадром с кодом OK или ERROR
+ */
+final class ShardProtocol
+{
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+	
+	static final byte ADD = 10;
+	static final byte BY_DESTINATION = 11;
+	static final byte BY_DESTINATION_AFTER_HOUR = 12;
+	static final byte BY_DESTINATION_COMMON = 13;
+	static final byte FIND = 14;
+	static final byte AFTER_HOUR = 15;
+	static final byte SIZE = 16;
+	static final byte MISPLACED = 17;
+	static final byte SHUTDOWN = 18;
+	static final byte REMOVE = 19;
+	
+	private static final int MAX_FRAME = 1 << 30;
+	
+	private ShardProtocol()
+	{
+	}
+	
+	/**
+	 * Номер шарда, владеющего пунктом назначения<br>
+	 * Хэш вычисляется от нормализованного названия, поэтому варианты написания одной станции попадают в один шард.
+	 * Используется согласованное хэширование Jump Consistent Hash: при переходе от n к n + 1 шардам
+	 * меняют владельца только 1 / (n + 1) пунктов назначения, и все они переходят в новый шард
+	 *
+	 * @param destination Пункт назначения
+	 * @param shards      Количество шардов
+	 * @return Номер шарда от 0 до shards - 1
+	 */
+	static int shardOf(String destination, int shards)
+	{
+		long key = destination == null ? 0 : StationDictionary.normalize(destination).hashCode() * 0x9E3779B97F4A7C15L;
+		long bucket = -1;
+		long next = 0;
+		
+		while (next < shards)
+		{
+			bucket = next;
+			key = key * 2862933555777941757L + 1;
+			next = (long) ((bucket + 1) * ((double) (1L << 31) / ((key >>> 33) + 1)));
+		}
+		
+		return (int) bucket;
+	}
+	
+	/**
+	 * Кадр протокола
+	 */
+	static class Frame
+	{
+		final byte code;
+		final String body;
+		
+		Frame(byte code, String body)
+		{
+			this.code = code;
+			this.body = body;
+		}
+	}
+	
+	static void write(SocketChannel channel, byte code, String body) throws IOException
+	{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(5 + bytes.length);
+		
+		buffer.putInt(bytes.length).put(code).put(bytes).flip();
+		
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+	
+	static Frame read(SocketChannel channel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(5);
+		
+		fill(channel, header);
+		
+		int length = header.getInt(0);
+		
+		if (length < 0 || length > MAX_FRAME)
+		{
+			throw new IOException("Неверная длина кадра: " + length);
+		}
+		
+		ByteBuffer body = ByteBuffer.allocate(length);
+		
+		fill(channel, body);
+		
+		return new Frame(header.get(4), new String(body.array(), StandardCharsets.UTF_8));
+	}
+	
+	private static void fill(SocketChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				throw new EOFException("Соединение с шардом закрыто");
+			}
+		}
+	}
+	
+	static String format(List<Train> trains)
+	{
+		StringBuilder builder = new StringBuilder();
+		
+		for (Train train : trains)
+		{
+			builder.append(Timetable.formatTrain(train)).append('\n');
+		}
+		
+		return builder.toString();
+	}
+	
+	static List<Train> parse(String body) throws WrongTimetableFormatException
+	{
+		List<Train> result = new ArrayList<>();
+		int start = 0;
+		
+		while (start < body.length())
+		{
+			int end = body.indexOf('\n', start);
+			
+			if (end < 0)
+			{
+				end = body.length();
+			}
+			
+			if (end > start)
+			{
+				result.add(Timetable.parseTrain(body.substring(start, end)));
+			}
+			
+			start = end + 1;
+		}
+		
+		return result;
+	}
+}
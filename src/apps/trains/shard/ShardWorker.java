@@ -0,0 +1,238 @@
+package apps.trains.shard;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import apps.trains.Timetable;
+import apps.trains.Train;
+import apps.trains.exceptions.WrongHourFormatException;
+import apps.trains.exceptions.WrongTimetableFormatException;
+
+/**
+ * Класс описывающий процесс-шард, хранящий часть расписания<br>
+ * Запускается ShardCoordinator через ProcessBuilder с аргументом tcp (loopback, свободный порт) или unix:путь
+ * (Unix domain socket). После открытия сокета печатает в стандартный вывод строку READY tcp:порт или READY unix:путь.
+ * Каждое соединение обслуживается отдельным потоком, запросы выполняются над общим Timetable.
+ * Процесс завершается по запросу SHUTDOWN или при завершении родительского процесса
+ */
+public class ShardWorker
+{
+	private final Timetable timetable = new Timetable();
+	private final ServerSocketChannel server;
+	
+	/**
+	 * Точка входа процесса-шарда
+	 *
+	 * @param args Адрес: tcp или unix:путь
+	 * @throws IOException Ошибка открытия сокета
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 1)
+		{
+			System.err.println("Использование: ShardWorker tcp|unix:<path>");
+			System.exit(2);
+		}
+		
+		ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> System.exit(0)));
+		
+		ShardWorker worker = new ShardWorker(args[0]);
+		
+		System.out.println("READY " + worker.getAddress());
+		System.out.flush();
+		worker.serve();
+	}
+	
+	private ShardWorker(String address) throws IOException
+	{
+		if (address.startsWith("unix:"))
+		{
+			Path path = Path.of(address.substring("unix:".length()));
+			
+			Files.deleteIfExists(path);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(path));
+		}
+		else if (address.equals("tcp"))
+		{
+			server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		}
+		else
+		{
+			throw new IOException("Неверный адрес шарда: " + address);
+		}
+	}
+	
+	private String getAddress() throws IOException
+	{
+		if (server.getLocalAddress() instanceof UnixDomainSocketAddress)
+		{
+			return "unix:" + ((UnixDomainSocketAddress) server.getLocalAddress()).getPath();
+		}
+		
+		return "tcp:" + ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+	
+	private void serve() throws IOException
+	{
+		while (true)
+		{
+			SocketChannel channel = server.accept();
+			Thread thread = new Thread(() -> handle(channel), "shard-connection");
+			
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	private void handle(SocketChannel channel)
+	{
+		try (channel)
+		{
+			if (channel.getLocalAddress() instanceof InetSocketAddress)
+			{
+				channel.socket().setTcpNoDelay(true);
+			}
+			
+			while (true)
+			{
+				ShardProtocol.Frame request = ShardProtocol.read(channel);
+				
+				if (request.code == ShardProtocol.SHUTDOWN)
+				{
+					ShardProtocol.write(channel, ShardProtocol.OK, "");
+					System.exit(0);
+				}
+				
+				String response;
+				
+				try
+				{
+					response = execute(request);
+				}
+				catch (WrongHourFormatException | WrongTimetableFormatException | RuntimeException exception)
+				{
+					ShardProtocol.write(channel, ShardProtocol.ERROR, String.valueOf(exception.getMessage()));
+					
+					continue;
+				}
+				
+				ShardProtocol.write(channel, ShardProtocol.OK, response);
+			}
+		}
+		catch (IOException exception)
+		{
+			// Соединение закрыто координатором
+		}
+	}
+	
+	private String execute(ShardProtocol.Frame request) throws WrongHourFormatException, WrongTimetableFormatException
+	{
+		String body = request.body;
+		
+		switch (request.code)
+		{
+			case ShardProtocol.ADD:
+				List<Train> trains = ShardProtocol.parse(body);
+				
+				for (Train train : trains)
+				{
+					timetable.add(train);
+				}
+				
+				return Integer.toString(trains.size());
+			case ShardProtocol.BY_DESTINATION:
+				return ShardProtocol.format(timetable.getTrainListByDestination(body));
+			case ShardProtocol.BY_DESTINATION_AFTER_HOUR:
+				int separator = body.indexOf('\n');
+				
+				return ShardProtocol.format(timetable.getTrainListByDestinationAndAfterHour(body.substring(separator + 1), Integer.parseInt(body.substring(0, separator))));
+			case ShardProtocol.BY_DESTINATION_COMMON:
+				return ShardProtocol.format(timetable.getTrainListByDestinationAndCommonSeatType(body));
+			case ShardProtocol.FIND:
+				Train train = timetable.getTrain(body);
+				
+				return train == null ? "" : Timetable.formatTrain(train) + '\n';
+			case ShardProtocol.AFTER_HOUR:
+				return ShardProtocol.format(afterHour(Integer.parseInt(body)));
+			case ShardProtocol.SIZE:
+				return Integer.toString(timetable.size());
+			case ShardProtocol.MISPLACED:
+				String[] fields = body.split("\n");
+				
+				return ShardProtocol.format(misplaced(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])));
+			case ShardProtocol.REMOVE:
+				return Integer.toString(remove(body));
+			default:
+				throw new IllegalArgumentException("Неизвестный код запроса: " + request.code);
+		}
+	}
+	
+	private List<Train> afterHour(int hour)
+	{
+		List<Train> result = new ArrayList<>();
+		
+		for (Train train : timetable.getTrains())
+		{
+			if (train.getDepartureTime().get(Calendar.HOUR_OF_DAY) > hour)
+			{
+				result.add(train);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Поезда, которые при shards шардах принадлежат не шарду index; поезда не удаляются
+	 */
+	private List<Train> misplaced(int shards, int index)
+	{
+		List<Train> result = new ArrayList<>();
+		
+		for (Train train : timetable.getTrains())
+		{
+			if (ShardProtocol.shardOf(train.getDestination(), shards) != index)
+			{
+				result.add(train);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Удаление поездов по номерам, разделённым '\n'<br>
+	 * Отсутствующие номера отсеиваются поиском по номеру, поэтому проход по списку поездов
+	 * выполняется только при наличии удаляемых поездов
+	 *
+	 * @return Количество удалённых поездов
+	 */
+	private int remove(String body)
+	{
+		Set<String> present = new HashSet<>();
+		
+		for (String number : body.split("\n"))
+		{
+			if (!number.isEmpty() && timetable.getTrain(number) != null)
+			{
+				present.add(number);
+			}
+		}
+		
+		return present.isEmpty() ? 0 : timetable.removeIf(train -> present.contains(train.getNumber())).size();
+	}
+}
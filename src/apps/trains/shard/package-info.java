@@ -0,0 +1,4 @@
+/**
+ * Пакет с расписанием, распределённым по процессам-шардам ShardWorker
+ */
+package apps.trains.shard;
@@ -0,0 +1,308 @@
+package apps.math.set;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.Predicate;
+
+/**
+ * Класс описывающий проверку корректности ConcurrentCharSet в стиле jcstress<br>
+ * Каждый сценарий многократно запускает акторов одновременно на новом множестве, после чего арбитр
+ * записывает наблюдаемый исход. Исходы делятся на допустимые и запрещённые, при запрещённом исходе
+ * процесс завершается с кодом 1.<br>
+ * Запуск: java -cp out apps.math.set.ConcurrentCharSetStressTest [количество итераций]
+ */
+public class ConcurrentCharSetStressTest
+{
+	/**
+	 * Сценарий проверки
+	 */
+	private interface Scenario
+	{
+		/**
+		 * Действия акторов над общим множеством, индекс массива соответствует номеру актора
+		 *
+		 * @param set    Множество
+		 * @param result Массив, в который акторы записывают наблюдения
+		 * @return Действия акторов
+		 */
+		Runnable[] actors(ConcurrentCharSet set, String[] result);
+		
+		/**
+		 * Исход итерации после завершения акторов
+		 *
+		 * @param set    Множество
+		 * @param result Наблюдения акторов
+		 * @return Строка исхода
+		 */
+		String arbiter(ConcurrentCharSet set, String[] result);
+		
+		/**
+		 * Проверка исхода
+		 *
+		 * @param outcome Строка исхода
+		 * @return true если исход запрещён
+		 */
+		boolean forbidden(String outcome);
+	}
+	
+	/**
+	 * Точка входа проверки
+	 *
+	 * @param args Количество итераций каждого сценария (по умолчанию 20000)
+	 * @throws Exception Ошибка ожидания потоков
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		boolean failed = false;
+		
+		failed |= run("Одно слово, разные элементы: оба add видны", iterations, new Scenario()
+		{
+			@Override
+			public Runnable[] actors(ConcurrentCharSet set, String[] result)
+			{
+				return new Runnable[] {
+						() -> result[0] = Boolean.toString(set.add('a')),
+						() -> result[1] = Boolean.toString(set.add('b'))
+				};
+			}
+			
+			@Override
+			public String arbiter(ConcurrentCharSet set, String[] result)
+			{
+				return result[0] + ", " + result[1] + ", " + set.contains('a') + ", " + set.contains('b');
+			}
+			
+			@Override
+			public boolean forbidden(String outcome)
+			{
+				return !outcome.equals("true, true, true, true");
+			}
+		});
+		
+		failed |= run("Один элемент: ровно один add успешен", iterations, new Scenario()
+		{
+			@Override
+			public Runnable[] actors(ConcurrentCharSet set, String[] result)
+			{
+				return new Runnable[] {
+						() -> result[0] = Boolean.toString(set.add('x')),
+						() -> result[1] = Boolean.toString(set.add('x'))
+				};
+			}
+			
+			@Override
+			public String arbiter(ConcurrentCharSet set, String[] result)
+			{
+				return result[0] + ", " + result[1] + ", " + set.cardinality();
+			}
+			
+			@Override
+			public boolean forbidden(String outcome)
+			{
+				return !outcome.equals("true, false, 1") && !outcome.equals("false, true, 1");
+			}
+		});
+		
+		// Писатель переносит элемент из одного слова в другое: сначала add, затем remove.
+		// Согласованный снимок всегда содержит хотя бы один из двух элементов
+		failed |= run("Перенос между словами: snapshot не теряет элемент", iterations, new Scenario()
+		{
+			@Override
+			public Runnable[] actors(ConcurrentCharSet set, String[] result)
+			{
+				set.add('a');
+				
+				return new Runnable[] {
+						() ->
+						{
+							set.add('Ѐ');
+							set.remove('a');
+						},
+						() ->
+						{
+							CharBitmap snapshot = set.snapshot();
+							
+							result[0] = snapshot.contains('a') + ", " + snapshot.contains('Ѐ');
+						}
+				};
+			}
+			
+			@Override
+			public String arbiter(ConcurrentCharSet set, String[] result)
+			{
+				return result[0];
+			}
+			
+			@Override
+			public boolean forbidden(String outcome)
+			{
+				return outcome.equals("false, false");
+			}
+		});
+		
+		// Писатель добавляет элементы в порядке возрастания слов, читатель проверяет их в обратном порядке:
+		// если виден последний элемент, видны и предыдущие
+		failed |= run("Порядок add: contains не видит позднее без раннего", iterations, new Scenario()
+		{
+			@Override
+			public Runnable[] actors(ConcurrentCharSet set, String[] result)
+			{
+				return new Runnable[] {
+						() ->
+						{
+							set.add('a');
+							set.add('Ѐ');
+						},
+						() ->
+						{
+							boolean late = set.contains('Ѐ');
+							
+							result[0] = late + ", " + set.contains('a');
+						}
+				};
+			}
+			
+			@Override
+			public String arbiter(ConcurrentCharSet set, String[] result)
+			{
+				return result[0];
+			}
+			
+			@Override
+			public boolean forbidden(String outcome)
+			{
+				return outcome.equals("true, false");
+			}
+		});
+		
+		failed |= contendedSnapshot(iterations / 100);
+		
+		System.exit(failed ? 1 : 0);
+	}
+	
+	private static boolean run(String name, int iterations, Scenario scenario) throws Exception
+	{
+		Map<String, Integer> outcomes = new TreeMap<>();
+		
+		for (int i = 0; i < iterations; i++)
+		{
+			ConcurrentCharSet set = new ConcurrentCharSet();
+			String[] result = new String[2];
+			Runnable[] actors = scenario.actors(set, result);
+			CyclicBarrier barrier = new CyclicBarrier(actors.length);
+			Thread[] threads = new Thread[actors.length];
+			
+			for (int j = 0; j < actors.length; j++)
+			{
+				Runnable actor = actors[j];
+				
+				threads[j] = new Thread(() ->
+				{
+					await(barrier);
+					actor.run();
+				});
+				threads[j].start();
+			}
+			
+			for (Thread thread : threads)
+			{
+				thread.join();
+			}
+			
+			outcomes.merge(scenario.arbiter(set, result), 1, Integer::sum);
+		}
+		
+		return report(name, outcomes, scenario::forbidden);
+	}
+	
+	/**
+	 * Снимки при непрерывных изменениях одного слова: каждый писатель переносит элемент внутри своей пары,
+	 * всегда добавляя новый элемент до удаления старого, поэтому в любой момент присутствует хотя бы один
+	 * элемент пары. Снимок обязан содержать хотя бы один элемент каждой пары и завершаться даже при
+	 * постоянных изменениях
+	 */
+	private static boolean contendedSnapshot(int snapshots) throws Exception
+	{
+		int writers = 4;
+		Map<String, Integer> outcomes = new TreeMap<>();
+		ConcurrentCharSet set = new ConcurrentCharSet();
+		Thread[] threads = new Thread[writers];
+		
+		for (int j = 0; j < writers; j++)
+		{
+			char first = (char) ('a' + 2 * j);
+			char second = (char) (first + 1);
+			
+			set.add(first);
+			threads[j] = new Thread(() ->
+			{
+				while (!Thread.currentThread().isInterrupted())
+				{
+					set.add(second);
+					set.remove(first);
+					set.add(first);
+					set.remove(second);
+				}
+			});
+			threads[j].setDaemon(true);
+			threads[j].start();
+		}
+		
+		for (int i = 0; i < snapshots; i++)
+		{
+			CharBitmap snapshot = set.snapshot();
+			int pairs = 0;
+			
+			for (int j = 0; j < writers; j++)
+			{
+				char first = (char) ('a' + 2 * j);
+				
+				if (snapshot.contains(first) || snapshot.contains((char) (first + 1)))
+				{
+					pairs++;
+				}
+			}
+			
+			outcomes.merge(pairs + " of " + writers + " pairs consistent", 1, Integer::sum);
+		}
+		
+		for (Thread thread : threads)
+		{
+			thread.interrupt();
+			thread.join();
+		}
+		
+		return report("Снимки при непрерывных изменениях", outcomes, outcome -> !outcome.startsWith(writers + " "));
+	}
+	
+	private static boolean report(String name, Map<String, Integer> outcomes, Predicate<String> forbidden)
+	{
+		boolean failed = false;
+		
+		System.out.println(name);
+		
+		for (Map.Entry<String, Integer> entry : outcomes.entrySet())
+		{
+			boolean bad = forbidden.test(entry.getKey());
+			
+			failed |= bad;
+			System.out.printf("  %-32s %8d  %s%n", entry.getKey(), entry.getValue(), bad ? "FORBIDDEN" : "ACCEPTABLE");
+		}
+		
+		return failed;
+	}
+	
+	private static void await(CyclicBarrier barrier)
+	{
+		try
+		{
+			barrier.await();
+		}
+		catch (Exception exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+}